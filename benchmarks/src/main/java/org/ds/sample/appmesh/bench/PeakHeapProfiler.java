@@ -0,0 +1,98 @@
+package org.ds.sample.appmesh.bench;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reports the peak heap usage of each iteration, the sum of the peaks of all heap pools. Pools peak
+ * at different moments, so this is an upper bound on the real peak.
+ *
+ * The constructs live in the jsii node process, so on Linux the peak resident set size of the node
+ * processes started by the benchmark is reported too, read from VmHWM in /proc/<pid>/status.
+ */
+public class PeakHeapProfiler implements InternalProfiler {
+    @Override
+    public String getDescription() {
+        return "Peak heap usage per iteration";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        for (Path process : nodeProcesses()) {
+            try {
+                // Resets VmHWM to the current resident set size
+                Files.write(process.resolve("clear_refs"), "5".getBytes());
+            } catch (IOException e) {
+                // The peak then covers the whole life of the process
+            }
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                       IterationResult result) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        List<Result> results = new ArrayList<>();
+        results.add(new ScalarResult("heap.peak", peak / (1024.0 * 1024.0), "MB", AggregationPolicy.MAX));
+
+        List<Path> processes = nodeProcesses();
+        if (!processes.isEmpty()) {
+            long nodePeakKiB = 0;
+            for (Path process : processes) {
+                nodePeakKiB += peakResidentKiB(process);
+            }
+            results.add(new ScalarResult("node.rss.peak", nodePeakKiB / 1024.0, "MB", AggregationPolicy.MAX));
+        }
+        return results;
+    }
+
+    private static List<Path> nodeProcesses() {
+        return ProcessHandle.current().descendants()
+                .filter(process -> process.info().command()
+                        .map(command -> Paths.get(command).getFileName().toString().equals("node"))
+                        .orElse(false))
+                .map(process -> Paths.get("/proc", String.valueOf(process.pid())))
+                .filter(Files::isDirectory)
+                .collect(Collectors.toList());
+    }
+
+    private static long peakResidentKiB(Path process) {
+        try {
+            for (String line : Files.readAllLines(process.resolve("status"))) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException e) {
+            // The process exited since it was listed
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,58 @@
+package org.ds.sample.appmesh.bench;
+
+import org.ds.sample.appmesh.CdkAppMeshApplication;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.AppProps;
+import software.amazon.awscdk.cxapi.CloudAssembly;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building and synthesizing the network, mesh and compute stacks for generated topologies of
+ * growing size.
+ *
+ * Construct creation and synthesis run in the jsii node process, so the JVM allocation and heap
+ * figures cover the Java side only while the wall time covers both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SynthBenchmark {
+    @Param({"4", "50", "300"})
+    public int virtualNodes;
+
+    @Param({"1", "10"})
+    public int routes;
+
+    @Param({"1", "50"})
+    public int taskDefinitions;
+
+    private MeshTopology topology;
+    private Path outdir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        topology = TopologyGenerator.generate(virtualNodes, routes, Math.min(taskDefinitions, virtualNodes));
+        outdir = Files.createTempDirectory("synth-bench");
+    }
+
+    @Benchmark
+    public CloudAssembly synth() {
+        App app = new App(AppProps.builder()
+                .outdir(outdir.toString())
+                .build());
+        CdkAppMeshApplication.createStacks(app, null, topology, new HashSet<>(Arrays.asList(
+                CdkAppMeshApplication.NETWORK, CdkAppMeshApplication.MESH, CdkAppMeshApplication.COMPUTE)));
+        return app.synth();
+    }
+}
@@ -0,0 +1,66 @@
+package org.ds.sample.appmesh.bench;
+
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.TopologyLoader;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates synthetic topologies shaped like the color app: N http virtual nodes behind one router,
+ * a gateway node calling the router's virtual service, and task definitions for the first nodes.
+ */
+public class TopologyGenerator {
+    // App Mesh accepts at most 10 weighted targets per route
+    private static final int MAX_TARGETS_PER_ROUTE = 10;
+
+    public static MeshTopology generate(int virtualNodes, int routes, int taskDefinitions) {
+        List<Object> nodes = new ArrayList<>(virtualNodes + 1);
+        for (int i = 0; i < virtualNodes; i++) {
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put("name", "svc" + i);
+            if (i < taskDefinitions) {
+                node.put("task", Map.of(
+                        "repository", "colorteller",
+                        "environment", Map.of("COLOR", "svc" + i, "SERVER_PORT", "9080")
+                ));
+            }
+            nodes.add(node);
+        }
+        nodes.add(Map.of(
+                "name", "gateway",
+                "healthCheck", false,
+                "backends", List.of("frontend")
+        ));
+
+        int targetsPerRoute = Math.min(virtualNodes, MAX_TARGETS_PER_ROUTE);
+        List<Object> routeSpecs = new ArrayList<>(routes);
+        for (int r = 0; r < routes; r++) {
+            List<Object> targets = new ArrayList<>(targetsPerRoute);
+            for (int t = 0; t < targetsPerRoute; t++) {
+                targets.add(Map.of("node", "svc" + ((r * targetsPerRoute + t) % virtualNodes), "weight", 1));
+            }
+            routeSpecs.add(Map.of(
+                    "name", "route" + r,
+                    "prefix", "/route" + r,
+                    "targets", targets
+            ));
+        }
+
+        Map<String, Object> spec = new LinkedHashMap<>();
+        spec.put("meshName", "benchMesh");
+        spec.put("serviceDomain", "bench.local");
+        spec.put("virtualNodes", nodes);
+        spec.put("virtualRouters", List.of(Map.of(
+                "name", "frontend-vr",
+                "routes", routeSpecs
+        )));
+        spec.put("virtualServices", List.of(Map.of(
+                "name", "frontend",
+                "router", "frontend-vr"
+        )));
+        return TopologyLoader.fromMap(spec);
+    }
+}
@@ -0,0 +1,69 @@
+package org.ds.sample.appmesh.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for a colorteller task: answers its health check on {@code /ping} and any other path
+ * with its color, counting the requests it serves.
+ */
+public class ColorTellerStandIn implements AutoCloseable {
+    private final String color;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Starts listening on {@code port} of the loopback address, 0 for any free port.
+     */
+    public ColorTellerStandIn(String color, int port) throws IOException {
+        this.color = color;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.createContext("/ping", exchange -> respond(exchange, 200, new byte[0]));
+        server.createContext("/", exchange -> {
+            hits.increment();
+            respond(exchange, 200, color.getBytes(StandardCharsets.UTF_8));
+        });
+        executor = LoadGenerator.newExecutor(64);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public void resetHits() {
+        hits.reset();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
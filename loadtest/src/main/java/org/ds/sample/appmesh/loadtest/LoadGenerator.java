@@ -0,0 +1,143 @@
+package org.ds.sample.appmesh.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed loop load: a fixed number of workers each open a session and send requests back to back until
+ * the request budget is spent. Latencies are recorded in microseconds.
+ *
+ * Workers run on virtual threads when the JVM has them, Java 21 and later, and on platform threads
+ * otherwise.
+ */
+public class LoadGenerator {
+    /**
+     * A worker's connection to the system under test, sending one request per call.
+     */
+    public interface Session extends AutoCloseable {
+        void call() throws Exception;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    public static class Result {
+        private final Histogram latencies;
+        private final long requests;
+        private final long errors;
+        private final long elapsedNanos;
+
+        Result(Histogram latencies, long requests, long errors, long elapsedNanos) {
+            this.latencies = latencies;
+            this.requests = requests;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Latencies of the successful requests in microseconds.
+         */
+        public Histogram getLatencies() {
+            return latencies;
+        }
+
+        /**
+         * Requests sent, a session that could not open counting as one failed request.
+         */
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getRequestsPerSecond() {
+            return requests * 1e9 / elapsedNanos;
+        }
+    }
+
+    /**
+     * Executor giving every task a virtual thread when the JVM supports them, else a pool of
+     * {@code platformThreads} threads.
+     */
+    public static ExecutorService newExecutor(int platformThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(platformThreads);
+        }
+    }
+
+    public static boolean virtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    public static Result run(int concurrency, int requests, Callable<Session> sessions) throws InterruptedException {
+        Recorder recorder = new Recorder(3);
+        AtomicInteger remaining = new AtomicInteger(requests);
+        AtomicLong sent = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        ExecutorService executor = newExecutor(concurrency);
+        List<Future<?>> workers = new ArrayList<>(concurrency);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(executor.submit(() -> {
+                Session session;
+                try {
+                    session = sessions.call();
+                } catch (Exception e) {
+                    // A session that cannot open counts as one failed request, its share of the budget is
+                    // sent by the workers whose sessions did open
+                    sent.incrementAndGet();
+                    errors.incrementAndGet();
+                    return null;
+                }
+                try (session) {
+                    while (remaining.getAndDecrement() > 0) {
+                        sent.incrementAndGet();
+                        long before = System.nanoTime();
+                        try {
+                            session.call();
+                            recorder.recordValue((System.nanoTime() - before) / 1000);
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                // Only closing a session can fail here, after its requests were counted
+                executor.shutdownNow();
+                throw new IllegalStateException("Could not close a load session", e.getCause());
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        return new Result(recorder.getIntervalHistogram(), sent.get(), errors.get(), elapsed);
+    }
+}
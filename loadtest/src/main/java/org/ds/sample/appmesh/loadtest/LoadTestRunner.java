@@ -0,0 +1,267 @@
+package org.ds.sample.appmesh.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.ds.sample.appmesh.topology.ListenerProtocol;
+import org.ds.sample.appmesh.topology.MeshRouteSpec;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.TopologyLoader;
+import org.ds.sample.appmesh.topology.VirtualNodeSpec;
+import org.ds.sample.appmesh.topology.VirtualRouterSpec;
+import org.ds.sample.appmesh.topology.WeightedTargetSpec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load tests the topology on the local machine before it is deployed. The mesh stack is synthesized and
+ * its routes are served by local routers on the virtual routers' ports, in front of colorteller stand-ins
+ * for their targets. TCP virtual nodes get an echo stand-in on their port.
+ *
+ * Every HTTP route and echo server is then loaded in turn. The run fails when a request errors or an echo
+ * differs from what was sent, when a target's share of the traffic strays from the weight the topology
+ * declares, or when the p99 latency or throughput miss the given bounds.
+ *
+ * Options: {@code --topology <file>}, {@code --requests <n>} (20000), {@code --warmup <n>} (2000),
+ * {@code --concurrency <n>} (64), {@code --max-p99-millis <ms>} and {@code --min-rps <n>}.
+ */
+public class LoadTestRunner {
+    private String topologyFile;
+    private int requests = 20000;
+    private int warmup = 2000;
+    private int concurrency = 64;
+    private Double maxP99Millis;
+    private Double minRequestsPerSecond;
+    private final List<String> failures = new ArrayList<>();
+
+    public static void main(final String[] args) throws Exception {
+        // Otherwise Nagle's algorithm holds back response bodies until the client's delayed ack
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        LoadTestRunner runner = new LoadTestRunner();
+        for (int i = 0; i < args.length; i += 2) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            if (value == null) {
+                throw new IllegalArgumentException("Option " + args[i] + " needs a value");
+            }
+            switch (args[i]) {
+                case "--topology":
+                    runner.topologyFile = value;
+                    break;
+                case "--requests":
+                    runner.requests = Integer.parseInt(value);
+                    break;
+                case "--warmup":
+                    runner.warmup = Integer.parseInt(value);
+                    break;
+                case "--concurrency":
+                    runner.concurrency = Integer.parseInt(value);
+                    break;
+                case "--max-p99-millis":
+                    runner.maxP99Millis = Double.parseDouble(value);
+                    break;
+                case "--min-rps":
+                    runner.minRequestsPerSecond = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<String> failures = runner.run();
+        if (!failures.isEmpty()) {
+            System.out.println();
+            failures.forEach(failure -> System.out.println("FAILED " + failure));
+            System.exit(1);
+        }
+        System.out.println();
+        System.out.println("All checks passed");
+        // The jsii runtime keeps the JVM alive otherwise
+        System.exit(0);
+    }
+
+    public List<String> run() throws Exception {
+        MeshTopology topology = topologyFile != null
+                ? TopologyLoader.fromFile(Paths.get(topologyFile))
+                : TopologyLoader.fromResource(TopologyLoader.DEFAULT_RESOURCE);
+        List<WeightedRoute> routes = SynthesizedRoutes.synthesize(topology);
+        System.out.println("Load testing mesh " + topology.getMeshName() + " with " + concurrency + " "
+                + (LoadGenerator.virtualThreads() ? "virtual" : "platform") + " threads");
+
+        Map<String, VirtualNodeSpec> nodes = new HashMap<>();
+        for (VirtualNodeSpec node : topology.getVirtualNodes()) {
+            nodes.put(node.getVirtualNodeName(), node);
+        }
+        List<AutoCloseable> servers = new ArrayList<>();
+        try {
+            Map<String, ColorTellerStandIn> standIns = new LinkedHashMap<>();
+            for (WeightedRoute route : routes) {
+                if (route.getPrefix() == null) {
+                    continue;
+                }
+                for (String node : route.getWeights().keySet()) {
+                    if (!standIns.containsKey(node)) {
+                        ColorTellerStandIn standIn = new ColorTellerStandIn(nodes.get(node).getName(), 0);
+                        servers.add(standIn);
+                        standIns.put(node, standIn);
+                    }
+                }
+            }
+
+            for (VirtualRouterSpec router : topology.getVirtualRouters()) {
+                if (router.getProtocol() != ListenerProtocol.HTTP && router.getProtocol() != ListenerProtocol.HTTP2) {
+                    System.out.println("Skipping " + router.getProtocol() + " router " + router.getName());
+                    continue;
+                }
+                List<WeightedRoute> routerRoutes = new ArrayList<>();
+                for (WeightedRoute route : routes) {
+                    if (route.getRouterName().equals(router.getName())) {
+                        routerRoutes.add(route);
+                    }
+                }
+                LocalRouter localRouter = new LocalRouter(router.getPort(), routerRoutes, standIns);
+                servers.add(localRouter);
+                for (MeshRouteSpec routeSpec : router.getRoutes()) {
+                    for (WeightedRoute route : routerRoutes) {
+                        if (route.getRouteName().equals(routeSpec.getName())) {
+                            loadRoute(router, routeSpec, route, localRouter, nodes, standIns);
+                        }
+                    }
+                }
+            }
+
+            for (VirtualNodeSpec node : topology.getVirtualNodes()) {
+                if (node.getProtocol() == ListenerProtocol.TCP) {
+                    TcpEchoStandIn echo = new TcpEchoStandIn(node.getPort(), concurrency);
+                    servers.add(echo);
+                    loadEcho(node, echo);
+                }
+            }
+        } finally {
+            for (AutoCloseable server : servers) {
+                server.close();
+            }
+        }
+
+        return failures;
+    }
+
+    private void loadRoute(VirtualRouterSpec router, MeshRouteSpec routeSpec, WeightedRoute route,
+                           LocalRouter localRouter, Map<String, VirtualNodeSpec> nodes,
+                           Map<String, ColorTellerStandIn> standIns) throws InterruptedException {
+        String name = router.getName() + "/" + route.getRouteName();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(
+                        URI.create("http://127.0.0.1:" + localRouter.getPort() + route.getPrefix()))
+                .build();
+        LoadGenerator.Session session = () -> {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("HTTP " + response.statusCode());
+            }
+        };
+
+        LoadGenerator.run(concurrency, warmup, () -> session);
+        standIns.values().forEach(ColorTellerStandIn::resetHits);
+        LoadGenerator.Result result = LoadGenerator.run(concurrency, requests, () -> session);
+        report("route " + name, result);
+
+        int declaredTotal = 0;
+        for (WeightedTargetSpec target : routeSpec.getTargets()) {
+            declaredTotal += target.getWeight();
+        }
+        long served = result.getRequests() - result.getErrors();
+        for (WeightedTargetSpec target : routeSpec.getTargets()) {
+            String node = null;
+            for (VirtualNodeSpec spec : nodes.values()) {
+                if (spec.getName().equals(target.getNode())) {
+                    node = spec.getVirtualNodeName();
+                }
+            }
+            double expected = (double) target.getWeight() / declaredTotal;
+            long hits = standIns.get(node).getHits();
+            // Four standard deviations of the binomial split, so a correct split fails about once in 15000 runs
+            double allowed = 4 * Math.sqrt(served * expected * (1 - expected)) + 1;
+            boolean ok = Math.abs(hits - expected * served) <= allowed;
+            System.out.printf("  %-24s declared %3d  synthesized %3d  expected %6.2f%%  observed %6.2f%%  %s%n",
+                    node, target.getWeight(), route.getWeights().get(node), expected * 100,
+                    served > 0 ? hits * 100.0 / served : 0, ok ? "ok" : "MISMATCH");
+            if (!ok) {
+                failures.add("route " + name + " sent " + hits + " of " + served + " requests to " + node
+                        + " for a declared weight of " + target.getWeight() + " out of " + declaredTotal);
+            }
+        }
+    }
+
+    private void loadEcho(VirtualNodeSpec node, TcpEchoStandIn echo) throws InterruptedException {
+        byte[] message = ("ping from " + node.getName() + "\n").getBytes();
+        LoadGenerator.run(concurrency, warmup, () -> echoSession(echo, message));
+        report("echo " + node.getName(), LoadGenerator.run(concurrency, requests, () -> echoSession(echo, message)));
+    }
+
+    private static LoadGenerator.Session echoSession(TcpEchoStandIn echo, byte[] message) throws Exception {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), echo.getPort());
+        socket.setTcpNoDelay(true);
+        InputStream in = socket.getInputStream();
+        OutputStream out = socket.getOutputStream();
+        byte[] reply = new byte[message.length];
+        return new LoadGenerator.Session() {
+            @Override
+            public void call() throws Exception {
+                out.write(message);
+                out.flush();
+                int read = 0;
+                while (read < reply.length) {
+                    int n = in.read(reply, read, reply.length - read);
+                    if (n == -1) {
+                        throw new IllegalStateException("Echo connection closed");
+                    }
+                    read += n;
+                }
+                if (!Arrays.equals(reply, message)) {
+                    throw new IllegalStateException("Echo replied with other bytes than were sent");
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                socket.close();
+            }
+        };
+    }
+
+    private void report(String name, LoadGenerator.Result result) {
+        Histogram latencies = result.getLatencies();
+        double p99Millis = latencies.getValueAtPercentile(99) / 1000.0;
+        System.out.printf("%n%s: %d requests, %d errors, %.0f requests/s%n", name, result.getRequests(),
+                result.getErrors(), result.getRequestsPerSecond());
+        System.out.printf("  latency ms  p50 %.3f  p90 %.3f  p99 %.3f  p99.9 %.3f  max %.3f%n",
+                latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(90) / 1000.0,
+                p99Millis, latencies.getValueAtPercentile(99.9) / 1000.0, latencies.getMaxValue() / 1000.0);
+
+        if (result.getErrors() > 0) {
+            failures.add(name + " had " + result.getErrors() + " errors");
+        }
+        if (maxP99Millis != null && p99Millis > maxP99Millis) {
+            failures.add(name + " p99 latency " + p99Millis + "ms is above " + maxP99Millis + "ms");
+        }
+        if (minRequestsPerSecond != null && result.getRequestsPerSecond() < minRequestsPerSecond) {
+            failures.add(name + " served " + Math.round(result.getRequestsPerSecond()) + " requests/s, below "
+                    + minRequestsPerSecond);
+        }
+    }
+}
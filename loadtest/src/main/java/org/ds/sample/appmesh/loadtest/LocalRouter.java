@@ -0,0 +1,108 @@
+package org.ds.sample.appmesh.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stands in for Envoy in front of a virtual router: listens on the router's port, matches the longest
+ * route prefix and forwards each request to one of the route's targets, picked at random in proportion
+ * to its weight like Envoy's weighted clusters. Targets with no weight never receive traffic.
+ */
+public class LocalRouter implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final List<WeightedRoute> routes;
+    private final Map<String, ColorTellerStandIn> standIns;
+
+    public LocalRouter(int port, List<WeightedRoute> routes, Map<String, ColorTellerStandIn> standIns)
+            throws IOException {
+        this.routes = new ArrayList<>(routes);
+        this.routes.sort(Comparator.comparingInt((WeightedRoute route) -> route.getPrefix().length()).reversed());
+        this.standIns = standIns;
+        executor = LoadGenerator.newExecutor(64);
+        // The client completes responses on its own threads, the server's are all busy waiting for them
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.createContext("/", this::route);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        for (WeightedRoute route : routes) {
+            if (path.startsWith(route.getPrefix())) {
+                ColorTellerStandIn target = pick(route);
+                if (target != null) {
+                    forward(exchange, target);
+                } else {
+                    ColorTellerStandIn.respond(exchange, 503, new byte[0]);
+                }
+                return;
+            }
+        }
+        ColorTellerStandIn.respond(exchange, 404, new byte[0]);
+    }
+
+    private ColorTellerStandIn pick(WeightedRoute route) {
+        int total = 0;
+        for (int weight : route.getWeights().values()) {
+            total += weight;
+        }
+        if (total == 0) {
+            return null;
+        }
+        int point = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<String, Integer> target : route.getWeights().entrySet()) {
+            point -= target.getValue();
+            if (point < 0) {
+                return standIns.get(target.getKey());
+            }
+        }
+        throw new IllegalStateException("Weights of route " + route.getRouteName() + " changed while routing");
+    }
+
+    private void forward(HttpExchange exchange, ColorTellerStandIn target) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(
+                        URI.create("http://127.0.0.1:" + target.getPort() + exchange.getRequestURI()))
+                .method(exchange.getRequestMethod(),
+                        HttpRequest.BodyPublishers.ofByteArray(exchange.getRequestBody().readAllBytes()))
+                .build();
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            ColorTellerStandIn.respond(exchange, response.statusCode(), response.body());
+        } catch (IOException e) {
+            ColorTellerStandIn.respond(exchange, 503, new byte[0]);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ColorTellerStandIn.respond(exchange, 503, new byte[0]);
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,99 @@
+package org.ds.sample.appmesh.loadtest;
+
+import org.ds.sample.appmesh.CdkAppMeshApplication;
+import org.ds.sample.appmesh.MeshStack;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.AppProps;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.cxapi.CloudAssembly;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the weighted routes out of the synthesized mesh stack template, so the load test routes on the
+ * weights App Mesh would actually receive rather than on those declared in the topology.
+ */
+public class SynthesizedRoutes {
+    private static final List<String> ROUTE_TYPES = List.of("HttpRoute", "Http2Route", "GrpcRoute", "TcpRoute");
+
+    public static List<WeightedRoute> synthesize(MeshTopology topology) {
+        App app;
+        try {
+            app = new App(AppProps.builder()
+                    .outdir(Files.createTempDirectory("loadtest-synth").toString())
+                    .build());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create the cloud assembly directory", e);
+        }
+        List<Stack> stacks = CdkAppMeshApplication.createStacks(app, null, topology, Set.of(CdkAppMeshApplication.MESH));
+        CloudAssembly assembly = app.synth();
+
+        for (Stack stack : stacks) {
+            if (stack instanceof MeshStack) {
+                return fromTemplate(asMap(assembly.getStackByName(stack.getStackName()).getTemplate()));
+            }
+        }
+        throw new IllegalStateException("No mesh stack was synthesized");
+    }
+
+    public static List<WeightedRoute> fromTemplate(Map<String, Object> template) {
+        Map<String, Object> resources = asMap(template.get("Resources"));
+        List<WeightedRoute> routes = new ArrayList<>();
+
+        for (Object value : resources.values()) {
+            Map<String, Object> resource = asMap(value);
+            if (!"AWS::AppMesh::Route".equals(resource.get("Type"))) {
+                continue;
+            }
+            Map<String, Object> properties = asMap(resource.get("Properties"));
+            Map<String, Object> spec = asMap(properties.get("Spec"));
+            for (String routeType : ROUTE_TYPES) {
+                if (!spec.containsKey(routeType)) {
+                    continue;
+                }
+                Map<String, Object> typedRoute = asMap(spec.get(routeType));
+                Map<String, Integer> weights = new LinkedHashMap<>();
+                for (Object target : (List<?>) asMap(typedRoute.get("Action")).get("WeightedTargets")) {
+                    Map<String, Object> weightedTarget = asMap(target);
+                    weights.put(resolveName(resources, weightedTarget.get("VirtualNode")),
+                            ((Number) weightedTarget.get("Weight")).intValue());
+                }
+                Object match = typedRoute.get("Match");
+                String prefix = match != null ? (String) asMap(match).get("Prefix") : null;
+                routes.add(new WeightedRoute(resolveName(resources, properties.get("VirtualRouterName")),
+                        (String) properties.get("RouteName"), routeType, prefix, weights));
+            }
+        }
+
+        return routes;
+    }
+
+    /**
+     * Names are either literals or {@code Fn::GetAtt} of the name attribute of another resource of the
+     * template, whose property of the same name holds the literal.
+     */
+    private static String resolveName(Map<String, Object> resources, Object name) {
+        if (name instanceof String) {
+            return (String) name;
+        }
+        List<?> getAtt = (List<?>) asMap(name).get("Fn::GetAtt");
+        if (getAtt == null) {
+            throw new IllegalArgumentException("Unable to resolve name " + name);
+        }
+        Map<String, Object> properties = asMap(asMap(resources.get((String) getAtt.get(0))).get("Properties"));
+        return resolveName(resources, properties.get((String) getAtt.get(1)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+}
@@ -0,0 +1,63 @@
+package org.ds.sample.appmesh.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Local stand-in for the tcpecho task: writes back whatever each connection sends.
+ */
+public class TcpEchoStandIn implements AutoCloseable {
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+
+    /**
+     * Serves up to {@code connections} concurrent connections, with one platform thread each when virtual
+     * threads are not available.
+     */
+    public TcpEchoStandIn(int port, int connections) throws IOException {
+        serverSocket = new ServerSocket(port, Math.max(1024, connections), InetAddress.getLoopbackAddress());
+        // One thread accepts, and the connections of the previous run may still be closing
+        executor = LoadGenerator.newExecutor(2 * connections + 1);
+        executor.execute(this::accept);
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                executor.execute(() -> echo(socket));
+            } catch (IOException e) {
+                // Closed while accepting
+            }
+        }
+    }
+
+    private static void echo(Socket socket) {
+        try (Socket s = socket; InputStream in = s.getInputStream(); OutputStream out = s.getOutputStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+}
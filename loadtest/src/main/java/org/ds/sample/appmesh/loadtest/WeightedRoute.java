@@ -0,0 +1,53 @@
+package org.ds.sample.appmesh.loadtest;
+
+import java.util.Map;
+
+/**
+ * A route of the synthesized mesh stack: its virtual router, the path prefix it matches and the weight of
+ * each virtual node it sends traffic to.
+ */
+public class WeightedRoute {
+    private final String routerName;
+    private final String routeName;
+    private final String routeType;
+    private final String prefix;
+    private final Map<String, Integer> weights;
+
+    public WeightedRoute(String routerName, String routeName, String routeType, String prefix,
+                         Map<String, Integer> weights) {
+        this.routerName = routerName;
+        this.routeName = routeName;
+        this.routeType = routeType;
+        this.prefix = prefix;
+        this.weights = weights;
+    }
+
+    public String getRouterName() {
+        return routerName;
+    }
+
+    public String getRouteName() {
+        return routeName;
+    }
+
+    /**
+     * Route type key of the template, e.g. {@code HttpRoute} or {@code TcpRoute}.
+     */
+    public String getRouteType() {
+        return routeType;
+    }
+
+    /**
+     * Path prefix of HTTP and HTTP/2 routes, null for the others.
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Weight of each target, keyed by virtual node name.
+     */
+    public Map<String, Integer> getWeights() {
+        return weights;
+    }
+}
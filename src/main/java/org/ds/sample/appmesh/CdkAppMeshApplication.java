@@ -1,10 +1,34 @@
 package org.ds.sample.appmesh;
 
+import org.ds.sample.appmesh.policy.PerformancePolicy;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.TopologyLoader;
 import software.amazon.awscdk.App;
+import software.amazon.awscdk.Aspects;
 import software.amazon.awscdk.Environment;
+import software.amazon.awscdk.Stack;
 import software.amazon.awscdk.StackProps;
 
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 public class CdkAppMeshApplication {
+    /**
+     * Context key naming a JSON or YAML topology file to synthesize instead of the bundled color app.
+     */
+    public static final String TOPOLOGY_CONTEXT_KEY = "topology";
+    /**
+     * Context key listing the stacks to synthesize, comma separated, out of network, mesh and compute.
+     */
+    public static final String STACKS_CONTEXT_KEY = "stacks";
+    public static final String NETWORK = "network";
+    public static final String MESH = "mesh";
+    public static final String COMPUTE = "compute";
+
     public static void main(final String[] args) {
         App app = new App();
         Environment env = Environment.builder()
@@ -12,11 +36,52 @@ public class CdkAppMeshApplication {
                 .region(System.getenv("AWS_REGION"))
                 .build();
 
-        new CdkAppMeshStack(app, "VpcStack", StackProps.builder()
+        createStacks(app, StackProps.builder()
                 .env(env)
-                .build());
+                .build(), loadTopology(app), selectedStacks(app));
 
         app.synth();
     }
-}
 
+    /**
+     * Creates the selected stacks and the stacks they reference: compute needs mesh, and both need network.
+     * The performance policy of the app's context lints them at synthesis.
+     */
+    public static List<Stack> createStacks(App app, StackProps props, MeshTopology topology, Set<String> selected) {
+        List<Stack> stacks = new ArrayList<>();
+        NetworkStack network = new NetworkStack(app, "NetworkStack", props, topology);
+        stacks.add(network);
+        if (selected.contains(MESH) || selected.contains(COMPUTE)) {
+            MeshStack mesh = new MeshStack(app, "MeshStack", props, topology, network);
+            stacks.add(mesh);
+            if (selected.contains(COMPUTE)) {
+                stacks.add(new ComputeStack(app, "ComputeStack", props, topology, network, mesh));
+            }
+        }
+        Aspects.of(app).add(PerformancePolicy.fromContext(app.getNode()));
+        return stacks;
+    }
+
+    private static MeshTopology loadTopology(App app) {
+        Object path = app.getNode().tryGetContext(TOPOLOGY_CONTEXT_KEY);
+        return path != null
+                ? TopologyLoader.fromFile(Paths.get(path.toString()))
+                : TopologyLoader.fromResource(TopologyLoader.DEFAULT_RESOURCE);
+    }
+
+    private static Set<String> selectedStacks(App app) {
+        Object stacks = app.getNode().tryGetContext(STACKS_CONTEXT_KEY);
+        if (stacks == null) {
+            return new HashSet<>(Arrays.asList(NETWORK, MESH, COMPUTE));
+        }
+        Set<String> selected = new HashSet<>();
+        for (String name : stacks.toString().split(",")) {
+            String stack = name.trim().toLowerCase();
+            if (!stack.equals(NETWORK) && !stack.equals(MESH) && !stack.equals(COMPUTE)) {
+                throw new IllegalArgumentException("Unknown stack " + name + ", expected network, mesh or compute");
+            }
+            selected.add(stack);
+        }
+        return selected;
+    }
+}
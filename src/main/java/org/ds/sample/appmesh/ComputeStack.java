@@ -0,0 +1,58 @@
+package org.ds.sample.appmesh;
+
+import org.ds.sample.appmesh.components.EcsServices;
+import org.ds.sample.appmesh.components.IamComponents;
+import org.ds.sample.appmesh.components.LogGroups;
+import org.ds.sample.appmesh.components.MeshIngress;
+import org.ds.sample.appmesh.components.TaskDefinitions;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.services.ecs.BaseService;
+import software.amazon.awscdk.services.ecs.TaskDefinition;
+import software.amazon.awscdk.services.iam.Role;
+import software.amazon.awscdk.services.logs.ILogGroup;
+import software.constructs.Construct;
+
+import java.util.Map;
+
+/**
+ * Everything that changes with a release: roles, logs, task definitions and the ECS services running
+ * them, gateway tasks included. Deploying a new image or environment only updates this stack.
+ */
+public class ComputeStack extends Stack {
+    private final Map<String, TaskDefinition> taskDefinitions;
+    private final Map<String, BaseService> services;
+
+    public ComputeStack(final Construct scope, final String id, final StackProps props, final MeshTopology topology,
+                        final NetworkStack network, final MeshStack mesh) {
+        super(scope, id, props);
+        // Envoy finds its virtual node by name, which is no reference CloudFormation can see
+        addDependency(mesh);
+
+        Role taskRole = IamComponents.createTaskIamRole(this);
+        Role taskServiceRole = IamComponents.createTaskExecutionIamRole(this);
+        Map<String, ILogGroup> logGroups = LogGroups.createLogGroups(this, topology);
+
+        // -------- ECS Services ---------
+        taskDefinitions = TaskDefinitions.createTaskDefinitions(this, topology, taskRole, taskServiceRole, logGroups);
+
+        services = EcsServices.createServices(this, topology, network.getCluster(), network.getServiceNamespace(),
+                network.getMeshSecurityGroup(), mesh.getMeshResources().getCloudMapServices(),
+                network.getCapacityProvider(), taskDefinitions);
+
+        // -------- Ingress ---------
+        if (topology.getIngress().isEnabled()) {
+            MeshIngress.createGatewayService(this, topology, network.getCluster(), network.getMeshSecurityGroup(),
+                    taskRole, taskServiceRole, logGroups.get(LogGroups.ingressKey(topology.getIngress().getName())));
+        }
+    }
+
+    public Map<String, TaskDefinition> getTaskDefinitions() {
+        return taskDefinitions;
+    }
+
+    public Map<String, BaseService> getServices() {
+        return services;
+    }
+}
@@ -0,0 +1,55 @@
+package org.ds.sample.appmesh;
+
+import org.ds.sample.appmesh.components.MeshIngress;
+import org.ds.sample.appmesh.components.MeshMonitoring;
+import org.ds.sample.appmesh.components.MeshResources;
+import org.ds.sample.appmesh.components.MeshTopologyFactory;
+import org.ds.sample.appmesh.components.TrafficShifting;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.services.appmesh.Mesh;
+import software.amazon.awscdk.services.cloudwatch.Alarm;
+import software.constructs.Construct;
+
+import java.util.Map;
+
+/**
+ * The mesh itself: virtual nodes, routers, routes, services and gateway, with the dashboards, alarms
+ * and traffic shifting controllers watching over them.
+ */
+public class MeshStack extends Stack {
+    private final Mesh mesh;
+    private final MeshResources meshResources;
+
+    public MeshStack(final Construct scope, final String id, final StackProps props, final MeshTopology topology,
+                     final NetworkStack network) {
+        super(scope, id, props);
+
+        String applicationMeshName = topology.getMeshName();
+        mesh = Mesh.Builder.create(this, applicationMeshName)
+                .meshName(applicationMeshName)
+                .build();
+
+        meshResources = MeshTopologyFactory.createMeshResources(this, topology, mesh, network.getServiceNamespace());
+
+        if (topology.getIngress().isEnabled()) {
+            MeshIngress.createGateway(this, topology, mesh, meshResources);
+        }
+
+        // -------- Monitoring ---------
+        if (topology.getMetrics().isEnabled()) {
+            MeshMonitoring.createDashboards(this, topology);
+            Map<String, Alarm> latencyAlarms = MeshMonitoring.createLatencyAlarms(this, topology);
+            TrafficShifting.createShiftControllers(this, topology, meshResources, latencyAlarms);
+        }
+    }
+
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    public MeshResources getMeshResources() {
+        return meshResources;
+    }
+}
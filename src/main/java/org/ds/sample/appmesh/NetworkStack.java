@@ -0,0 +1,93 @@
+package org.ds.sample.appmesh;
+
+import org.ds.sample.appmesh.components.ClusterCapacity;
+import org.ds.sample.appmesh.components.EcsServices;
+import org.ds.sample.appmesh.components.VpcEndpoints;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.NetworkSpec;
+import org.ds.sample.appmesh.topology.VirtualNodeSpec;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.services.ec2.SecurityGroup;
+import software.amazon.awscdk.services.ec2.SubnetConfiguration;
+import software.amazon.awscdk.services.ec2.SubnetType;
+import software.amazon.awscdk.services.ec2.Vpc;
+import software.amazon.awscdk.services.ecs.AsgCapacityProvider;
+import software.amazon.awscdk.services.ecs.Cluster;
+import software.amazon.awscdk.services.servicediscovery.PrivateDnsNamespace;
+import software.constructs.Construct;
+
+import java.util.Arrays;
+
+/**
+ * Long lived networking shared by the mesh and compute stacks: the VPC, the ECS cluster with its capacity
+ * providers, the service namespace and the security group of the mesh tasks.
+ */
+public class NetworkStack extends Stack {
+    private final Vpc vpc;
+    private final Cluster cluster;
+    private final PrivateDnsNamespace serviceNamespace;
+    private final SecurityGroup meshSecurityGroup;
+    private final AsgCapacityProvider capacityProvider;
+
+    public NetworkStack(final Construct scope, final String id, final StackProps props, final MeshTopology topology) {
+        super(scope, id, props);
+
+        NetworkSpec network = topology.getNetwork();
+        Vpc.Builder vpcBuilder = Vpc.Builder.create(this, "MyVpc")
+                .maxAzs(network.getMaxAzs())  // Default is all AZs in region
+                .natGateways(network.getNatGateways());
+        if (network.getNatGateways() != null && network.getNatGateways() == 0) {
+            // Without NAT gateways tasks live in isolated subnets and reach AWS through the endpoints only
+            vpcBuilder.subnetConfiguration(Arrays.asList(
+                    SubnetConfiguration.builder().name("Public").subnetType(SubnetType.PUBLIC).build(),
+                    SubnetConfiguration.builder().name("Isolated").subnetType(SubnetType.PRIVATE_ISOLATED).build()
+            ));
+        }
+        vpc = vpcBuilder.build();
+        if (network.isVpcEndpoints()) {
+            VpcEndpoints.addEndpoints(vpc, topology);
+        }
+
+        boolean scalingOnRequests = false;
+        for (VirtualNodeSpec node : topology.getVirtualNodes()) {
+            scalingOnRequests |= node.getTask() != null && node.getTask().isScalingOnRequests();
+        }
+        cluster = Cluster.Builder.create(this, "colors-cluster")
+                .vpc(vpc)
+                // Scaling on requests divides them by the running task count of Container Insights
+                .containerInsights(scalingOnRequests)
+                .build();
+        capacityProvider = ClusterCapacity.addCapacityProviders(this, cluster, topology.getCompute());
+
+        serviceNamespace = PrivateDnsNamespace.Builder.create(this, "service-ns")
+                .name(topology.getServiceDomain())
+                .vpc(vpc)
+                .build();
+
+        meshSecurityGroup = EcsServices.createMeshSecurityGroup(this, topology, vpc);
+    }
+
+    public Vpc getVpc() {
+        return vpc;
+    }
+
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    public PrivateDnsNamespace getServiceNamespace() {
+        return serviceNamespace;
+    }
+
+    public SecurityGroup getMeshSecurityGroup() {
+        return meshSecurityGroup;
+    }
+
+    /**
+     * Provider of the cluster's instances, null with Fargate capacity.
+     */
+    public AsgCapacityProvider getCapacityProvider() {
+        return capacityProvider;
+    }
+}
@@ -0,0 +1,129 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.BinpackResource;
+import org.ds.sample.appmesh.topology.CapacityMode;
+import org.ds.sample.appmesh.topology.ComputeSpec;
+import org.ds.sample.appmesh.topology.CpuArchitecture;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.services.autoscaling.AutoScalingGroup;
+import software.amazon.awscdk.services.ec2.InstanceType;
+import software.amazon.awscdk.customresources.AwsCustomResource;
+import software.amazon.awscdk.customresources.AwsCustomResourcePolicy;
+import software.amazon.awscdk.customresources.AwsSdkCall;
+import software.amazon.awscdk.customresources.PhysicalResourceId;
+import software.amazon.awscdk.customresources.SdkCallsPolicyOptions;
+import software.amazon.awscdk.services.ecs.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Capacity providers of the cluster, and the strategies, placement and runtime platform services and
+ * task definitions use to run on them, following the topology's {@link ComputeSpec}.
+ */
+public class ClusterCapacity {
+    private static final String FARGATE = "FARGATE";
+    private static final String FARGATE_SPOT = "FARGATE_SPOT";
+
+    /**
+     * Adds Fargate and Fargate Spot, or an auto scaling group of ECS optimized instances, as capacity
+     * providers of the cluster. Returns the group's provider, null with Fargate capacity. The instances'
+     * role gets awsvpc ENI trunking enabled before they register.
+     */
+    public static AsgCapacityProvider addCapacityProviders(Stack stack, Cluster cluster, ComputeSpec spec) {
+        if (spec.getCapacity() == CapacityMode.FARGATE) {
+            cluster.enableFargateCapacityProviders();
+            return null;
+        }
+
+        AutoScalingGroup instances = AutoScalingGroup.Builder.create(stack, "ecs-instances")
+                .vpc(cluster.getVpc())
+                .instanceType(new InstanceType(spec.getInstanceType()))
+                .machineImage(EcsOptimizedImage.amazonLinux2(spec.getCpuArchitecture() == CpuArchitecture.ARM64
+                        ? AmiHardwareType.ARM
+                        : AmiHardwareType.STANDARD))
+                .minCapacity(spec.getMinInstances())
+                .maxCapacity(spec.getMaxInstances())
+                .build();
+
+        // Every awsvpc task takes an ENI of its own, so without trunking an instance runs only a few tasks
+        AwsSdkCall enableTrunking = AwsSdkCall.builder()
+                .service("ECS")
+                .action("putAccountSetting")
+                .parameters(Map.of(
+                        "name", "awsvpcTrunking",
+                        "value", "enabled",
+                        "principalArn", instances.getRole().getRoleArn()
+                ))
+                .physicalResourceId(PhysicalResourceId.of("awsvpc-trunking"))
+                .build();
+        AwsCustomResource trunking = AwsCustomResource.Builder.create(stack, "awsvpc-trunking")
+                .onCreate(enableTrunking)
+                .onUpdate(enableTrunking)
+                .policy(AwsCustomResourcePolicy.fromSdkCalls(SdkCallsPolicyOptions.builder()
+                        .resources(AwsCustomResourcePolicy.ANY_RESOURCE)
+                        .build()))
+                .build();
+        // Instances only get trunk ENIs when the setting is on as they register
+        instances.getNode().addDependency(trunking);
+
+        AsgCapacityProvider capacityProvider = AsgCapacityProvider.Builder.create(stack, "ecs-capacity-provider")
+                .autoScalingGroup(instances)
+                .targetCapacityPercent(spec.getTargetCapacityPercent())
+                .build();
+        cluster.addAsgCapacityProvider(capacityProvider);
+        return capacityProvider;
+    }
+
+    /**
+     * Weighted Fargate and Fargate Spot providers, or the instances' provider alone.
+     */
+    public static List<CapacityProviderStrategy> capacityProviderStrategies(ComputeSpec spec,
+                                                                            AsgCapacityProvider capacityProvider) {
+        List<CapacityProviderStrategy> strategies = new ArrayList<>();
+        if (spec.getCapacity() == CapacityMode.EC2) {
+            strategies.add(CapacityProviderStrategy.builder()
+                    .capacityProvider(capacityProvider.getCapacityProviderName())
+                    .weight(1)
+                    .build());
+            return strategies;
+        }
+        strategies.add(CapacityProviderStrategy.builder()
+                .capacityProvider(FARGATE)
+                .base(spec.getFargateBase())
+                .weight(spec.getFargateWeight())
+                .build());
+        if (spec.getFargateSpotWeight() > 0) {
+            strategies.add(CapacityProviderStrategy.builder()
+                    .capacityProvider(FARGATE_SPOT)
+                    .weight(spec.getFargateSpotWeight())
+                    .build());
+        }
+        return strategies;
+    }
+
+    /**
+     * Packs tasks on the instance resource of the compute settings, so fewer instances carry more tasks.
+     */
+    public static List<PlacementStrategy> placementStrategies(ComputeSpec spec) {
+        return Arrays.asList(spec.getBinpack() == BinpackResource.CPU
+                ? PlacementStrategy.packedByCpu()
+                : PlacementStrategy.packedByMemory());
+    }
+
+    /**
+     * Runs the task definition on Graviton for arm64. This CDK version has no runtime platform property
+     * on task definitions, so it is set on the CloudFormation resource.
+     */
+    public static void applyRuntimePlatform(TaskDefinition taskDef, CpuArchitecture cpuArchitecture) {
+        if (cpuArchitecture != CpuArchitecture.ARM64) {
+            return;
+        }
+        ((CfnTaskDefinition) taskDef.getNode().getDefaultChild()).addPropertyOverride("RuntimePlatform", Map.of(
+                "CpuArchitecture", "ARM64",
+                "OperatingSystemFamily", "LINUX"
+        ));
+    }
+}
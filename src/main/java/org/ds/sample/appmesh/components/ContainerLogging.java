@@ -0,0 +1,91 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.LogDeliveryMode;
+import org.ds.sample.appmesh.topology.LogDriverType;
+import org.ds.sample.appmesh.topology.LoggingSpec;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.services.ecs.*;
+import software.amazon.awscdk.services.logs.ILogGroup;
+
+import java.util.Map;
+
+/**
+ * Log drivers of the task containers, following the topology's {@link LoggingSpec}.
+ *
+ * With awslogs each container's driver calls CloudWatch Logs, optionally in non-blocking mode so a
+ * throttled API drops lines instead of stalling the application. With FireLens the containers write to
+ * a Fluent Bit sidecar of the task, which absorbs slow or throttled calls and sends lines in batches.
+ */
+public class ContainerLogging {
+    public static final String LOG_ROUTER_NAME = "log-router";
+
+    public static LogDriver logDriver(TaskDefinition taskDef, LoggingSpec spec, ILogGroup logGroup,
+                                      String streamPrefix) {
+        if (spec.getDriver() == LogDriverType.FIRELENS) {
+            if (taskDef.findContainer(LOG_ROUTER_NAME) == null) {
+                addLogRouter(taskDef, spec, logGroup);
+            }
+            // Fluent Bit calls CloudWatch Logs with the task role
+            logGroup.grantWrite(taskDef.getTaskRole());
+            return LogDrivers.firelens(
+                    FireLensLogDriverProps.builder()
+                            .options(Map.of(
+                                    "Name", "cloudwatch_logs",
+                                    "region", Stack.of(taskDef).getRegion(),
+                                    "log_group_name", logGroup.getLogGroupName(),
+                                    "log_stream_prefix", streamPrefix + "/"
+                            ))
+                            .build()
+            );
+        }
+        return awsLogs(taskDef, spec, logGroup, streamPrefix);
+    }
+
+    private static LogDriver awsLogs(TaskDefinition taskDef, LoggingSpec spec, ILogGroup logGroup,
+                                     String streamPrefix) {
+        boolean nonBlocking = spec.getMode() == LogDeliveryMode.NON_BLOCKING;
+        if (spec.getMaxBufferSize() == null) {
+            return LogDriver.awsLogs(
+                    AwsLogDriverProps.builder()
+                            .logGroup(logGroup)
+                            .streamPrefix(streamPrefix)
+                            .mode(nonBlocking ? AwsLogDriverMode.NON_BLOCKING : null)
+                            .build()
+            );
+        }
+        // The awslogs driver of CDK 2.1 has no buffer size, so its options are written out
+        logGroup.grantWrite(taskDef.obtainExecutionRole());
+        return GenericLogDriver.Builder.create()
+                .logDriver("awslogs")
+                .options(Map.of(
+                        "awslogs-group", logGroup.getLogGroupName(),
+                        "awslogs-stream-prefix", streamPrefix,
+                        "awslogs-region", Stack.of(taskDef).getRegion(),
+                        "mode", "non-blocking",
+                        "max-buffer-size", spec.getMaxBufferSize()
+                ))
+                .build();
+    }
+
+    /**
+     * Adds the Fluent Bit container the FireLens drivers of the task write to. It runs as the proxy user
+     * so its calls to CloudWatch Logs bypass Envoy's egress interception.
+     */
+    private static FirelensLogRouter addLogRouter(TaskDefinition taskDef, LoggingSpec spec, ILogGroup logGroup) {
+        return taskDef.addFirelensLogRouter(LOG_ROUTER_NAME,
+                FirelensLogRouterDefinitionOptions.builder()
+                        .containerName(LOG_ROUTER_NAME)
+                        .image(ContainerImage.fromRegistry("public.ecr.aws/aws-observability/aws-for-fluent-bit:stable"))
+                        .firelensConfig(
+                                FirelensConfig.builder()
+                                        .type(FirelensLogRouterType.FLUENTBIT)
+                                        .build()
+                        )
+                        .user(String.valueOf(EnvoySidecar.PROXY_UID))
+                        .essential(true)
+                        .memoryReservationMiB(50)
+                        .logging(awsLogs(taskDef, spec, logGroup, taskDef.getFamily() + "-log-router"))
+                        .build()
+        );
+    }
+}
@@ -1,110 +1,264 @@
 package org.ds.sample.appmesh.components;
 
+import org.ds.sample.appmesh.topology.MeshRouteSpec;
+import org.ds.sample.appmesh.topology.PerformanceProfile;
+import org.ds.sample.appmesh.topology.VirtualNodeSpec;
+import org.ds.sample.appmesh.topology.VirtualRouterSpec;
+import org.ds.sample.appmesh.topology.WeightedTargetSpec;
 import software.amazon.awscdk.Duration;
 import software.amazon.awscdk.Stack;
 import software.amazon.awscdk.services.appmesh.*;
+import software.amazon.awscdk.services.servicediscovery.IService;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 public class DemoAppMesh {
-    public static VirtualNodeListener createListener() {
-        return VirtualNodeListener
-                .http(HttpVirtualNodeListenerOptions.builder()
-                        .port(9080)
-                        .healthCheck(HealthCheck.http(
-                                HttpHealthCheckOptions.builder()
-                                        .path("/ping")
-                                        .healthyThreshold(2)
-                                        .unhealthyThreshold(2)
-                                        .timeout(Duration.millis(2000))
-                                        .interval(Duration.millis(5000))
-                                        .build()
-                        ))
-                        .build());
+    public static VirtualNodeListener createListener(VirtualNodeSpec spec) {
+        switch (spec.getProtocol()) {
+            case TCP:
+                return createTcpListener(spec);
+            case HTTP2:
+                return createHttp2Listener(spec);
+            case GRPC:
+                return createGrpcListener(spec);
+            case HTTP:
+            default:
+                return createHttpListener(spec);
+        }
     }
 
-    public static VirtualNode createVirtualNode(Stack stack, String serviceDomain, IMesh mesh, String basename) {
-        return VirtualNode.Builder.create(stack, basename + "VirtualNode")
+    private static HttpHealthCheckOptions createHttpHealthCheckOptions(VirtualNodeSpec spec) {
+        return HttpHealthCheckOptions.builder()
+                .path(spec.getHealthCheckPath())
+                .healthyThreshold(2)
+                .unhealthyThreshold(2)
+                .timeout(Duration.millis(2000))
+                .interval(Duration.millis(spec.getHealthCheckIntervalMillis()))
+                .build();
+    }
+
+    private static VirtualNodeListener createHttpListener(VirtualNodeSpec spec) {
+        HttpVirtualNodeListenerOptions.Builder options = HttpVirtualNodeListenerOptions.builder()
+                .port(spec.getPort());
+        if (spec.isHealthCheck()) {
+            options.healthCheck(HealthCheck.http(createHttpHealthCheckOptions(spec)));
+        }
+        PerformanceProfile profile = spec.getProfile();
+        if (profile != null) {
+            options.connectionPool(ListenerProfiles.httpConnectionPool(profile))
+                    .outlierDetection(ListenerProfiles.outlierDetection(profile))
+                    .timeout(ListenerProfiles.httpTimeout(profile));
+        }
+        return VirtualNodeListener.http(options.build());
+    }
+
+    private static VirtualNodeListener createHttp2Listener(VirtualNodeSpec spec) {
+        Http2VirtualNodeListenerOptions.Builder options = Http2VirtualNodeListenerOptions.builder()
+                .port(spec.getPort());
+        if (spec.isHealthCheck()) {
+            options.healthCheck(HealthCheck.http2(createHttpHealthCheckOptions(spec)));
+        }
+        PerformanceProfile profile = spec.getProfile();
+        if (profile != null) {
+            options.connectionPool(ListenerProfiles.http2ConnectionPool(profile))
+                    .outlierDetection(ListenerProfiles.outlierDetection(profile))
+                    .timeout(ListenerProfiles.httpTimeout(profile));
+        }
+        return VirtualNodeListener.http2(options.build());
+    }
+
+    private static VirtualNodeListener createGrpcListener(VirtualNodeSpec spec) {
+        GrpcVirtualNodeListenerOptions.Builder options = GrpcVirtualNodeListenerOptions.builder()
+                .port(spec.getPort());
+        if (spec.isHealthCheck()) {
+            options.healthCheck(HealthCheck.grpc(
+                    GrpcHealthCheckOptions.builder()
+                            .healthyThreshold(2)
+                            .unhealthyThreshold(2)
+                            .timeout(Duration.millis(2000))
+                            .interval(Duration.millis(spec.getHealthCheckIntervalMillis()))
+                            .build()
+            ));
+        }
+        PerformanceProfile profile = spec.getProfile();
+        if (profile != null) {
+            options.connectionPool(ListenerProfiles.grpcConnectionPool(profile))
+                    .outlierDetection(ListenerProfiles.outlierDetection(profile))
+                    .timeout(ListenerProfiles.grpcTimeout(profile));
+        }
+        return VirtualNodeListener.grpc(options.build());
+    }
+
+    private static VirtualNodeListener createTcpListener(VirtualNodeSpec spec) {
+        TcpVirtualNodeListenerOptions.Builder options = TcpVirtualNodeListenerOptions.builder()
+                .port(spec.getPort());
+        if (spec.isHealthCheck()) {
+            options.healthCheck(
+                    HealthCheck.tcp(
+                            TcpHealthCheckOptions.builder()
+                                    .healthyThreshold(2)
+                                    .unhealthyThreshold(2)
+                                    .timeout(Duration.millis(2000))
+                                    .interval(Duration.millis(spec.getHealthCheckIntervalMillis()))
+                                    .build()
+                    )
+            );
+        }
+        PerformanceProfile profile = spec.getProfile();
+        if (profile != null) {
+            // Outlier detection counts 5xx responses, so it does not apply to tcp listeners
+            options.connectionPool(ListenerProfiles.tcpConnectionPool(profile))
+                    .timeout(ListenerProfiles.tcpTimeout(profile));
+        }
+        return VirtualNodeListener.tcp(options.build());
+    }
+
+    public static VirtualNode createVirtualNode(Stack stack, String serviceDomain, IMesh mesh, VirtualNodeSpec spec) {
+        return createVirtualNode(stack, mesh, spec, ServiceDiscovery.dns(spec.getHostname() + "." + serviceDomain));
+    }
+
+    /**
+     * Creates a virtual node discovered through the instances of a Cloud Map service that carry all of
+     * the node's discovery attributes.
+     */
+    public static VirtualNode createVirtualNode(Stack stack, IMesh mesh, VirtualNodeSpec spec, IService cloudMapService) {
+        return createVirtualNode(stack, mesh, spec, spec.getDiscoveryAttributes().isEmpty()
+                ? ServiceDiscovery.cloudMap(cloudMapService)
+                : ServiceDiscovery.cloudMap(cloudMapService, spec.getDiscoveryAttributes()));
+    }
+
+    private static VirtualNode createVirtualNode(Stack stack, IMesh mesh, VirtualNodeSpec spec,
+                                                 ServiceDiscovery serviceDiscovery) {
+        return VirtualNode.Builder.create(stack, spec.getId())
                 .mesh(mesh)
-                .virtualNodeName(basename + "-vn")
+                .virtualNodeName(spec.getVirtualNodeName())
                 .listeners(
-                        Arrays.asList(createListener())
-                )
-                .serviceDiscovery(
-                        ServiceDiscovery.dns("colorteller-" + basename + "." + serviceDomain)
+                        Arrays.asList(createListener(spec))
                 )
+                .serviceDiscovery(serviceDiscovery)
                 .build();
     }
 
-    public static Route createColortellerRoute(Stack stack, IMesh mesh, VirtualRouter colorTellerVirtualRouter,
-                                         VirtualNode black, VirtualNode blue, VirtualNode red, VirtualNode white) {
-        return Route.Builder.create(stack, "colorTellerRoute")
+    public static VirtualRouter createVirtualRouter(Stack stack, IMesh mesh, VirtualRouterSpec spec) {
+        return VirtualRouter.Builder.create(stack, spec.getId())
+                .virtualRouterName(spec.getName())
                 .mesh(mesh)
-                .routeName("colorteller-route")
-                .virtualRouter(colorTellerVirtualRouter)
-                .routeSpec(
-                        RouteSpec.http(
-                                HttpRouteSpecOptions.builder()
-                                        .weightedTargets(
-                                                Arrays.asList(
-                                                        WeightedTarget.builder()
-                                                                .virtualNode(black)
-                                                                .weight(1)
-                                                                .build(),
-                                                        WeightedTarget.builder()
-                                                                .virtualNode(blue)
-                                                                .weight(1)
-                                                                .build(),
-                                                        WeightedTarget.builder()
-                                                                .virtualNode(red)
-                                                                .weight(1)
-                                                                .build(),
-                                                        WeightedTarget.builder()
-                                                                .virtualNode(white)
-                                                                .weight(1)
-                                                                .build()
-                                                )
-                                        )
-                                        .match(
-                                                HttpRouteMatch.builder()
-                                                        .path(
-                                                                HttpRoutePathMatch.startsWith("/")
-                                                        )
-                                                        .build()
-                                        )
-                                        .build()
-                        )
-                )
+                .listeners(Arrays.asList(
+                        createRouterListener(spec)
+                ))
                 .build();
     }
 
-    public static VirtualNode createTcpEchoVirtualNode(Stack stack, String serviceDomain, IMesh mesh) {
-        return VirtualNode.Builder.create(stack, "tcpEchoVirtualNode")
+    private static VirtualRouterListener createRouterListener(VirtualRouterSpec spec) {
+        switch (spec.getProtocol()) {
+            case TCP:
+                return VirtualRouterListener.tcp(spec.getPort());
+            case HTTP2:
+                return VirtualRouterListener.http2(spec.getPort());
+            case GRPC:
+                return VirtualRouterListener.grpc(spec.getPort());
+            case HTTP:
+            default:
+                return VirtualRouterListener.http(spec.getPort());
+        }
+    }
+
+    /**
+     * Creates a route spreading traffic over the route's weighted targets. Targets are looked up by
+     * node name in {@code virtualNodes}, which the topology has already validated.
+     */
+    public static Route createRoute(Stack stack, IMesh mesh, VirtualRouter virtualRouter, VirtualRouterSpec routerSpec,
+                                    MeshRouteSpec spec, Map<String, VirtualNode> virtualNodes) {
+        List<WeightedTarget> weightedTargets = new ArrayList<>(spec.getTargets().size());
+        for (WeightedTargetSpec target : spec.getTargets()) {
+            weightedTargets.add(
+                    WeightedTarget.builder()
+                            .virtualNode(virtualNodes.get(target.getNode()))
+                            .weight(target.getWeight())
+                            .build()
+            );
+        }
+
+        String id = spec.getId() != null ? spec.getId() : routerSpec.getName() + "-" + spec.getName();
+        Route route = Route.Builder.create(stack, id)
                 .mesh(mesh)
-                .virtualNodeName("tcpecho-vn")
-                .listeners(
-                        Arrays.asList(
-                                VirtualNodeListener.tcp(
-                                        TcpVirtualNodeListenerOptions.builder()
-                                                .port(2701)
-                                                .healthCheck(
-                                                        HealthCheck.tcp(
-                                                                TcpHealthCheckOptions.builder()
-                                                                        .healthyThreshold(2)
-                                                                        .unhealthyThreshold(2)
-                                                                        .timeout(Duration.millis(2000))
-                                                                        .interval(Duration.millis(5000))
-                                                                        .build()
-                                                        )
-                                                )
+                .routeName(spec.getName())
+                .virtualRouter(virtualRouter)
+                .routeSpec(createRouteSpec(routerSpec, spec, weightedTargets))
+                .build();
+
+        // CDK 2.1 renders a weight of 0 as 1, which would send traffic to targets kept out of rotation
+        CfnRoute cfnRoute = (CfnRoute) route.getNode().getDefaultChild();
+        for (int i = 0; i < spec.getTargets().size(); i++) {
+            if (spec.getTargets().get(i).getWeight() == 0) {
+                cfnRoute.addPropertyOverride("Spec." + routeType(routerSpec) + ".Action.WeightedTargets." + i + ".Weight", 0);
+            }
+        }
+        return route;
+    }
+
+    private static String routeType(VirtualRouterSpec routerSpec) {
+        switch (routerSpec.getProtocol()) {
+            case TCP:
+                return "TcpRoute";
+            case GRPC:
+                return "GrpcRoute";
+            case HTTP2:
+                return "Http2Route";
+            case HTTP:
+            default:
+                return "HttpRoute";
+        }
+    }
+
+    private static RouteSpec createRouteSpec(VirtualRouterSpec routerSpec, MeshRouteSpec spec,
+                                             List<WeightedTarget> weightedTargets) {
+        switch (routerSpec.getProtocol()) {
+            case TCP:
+                return RouteSpec.tcp(
+                        TcpRouteSpecOptions.builder()
+                                .weightedTargets(weightedTargets)
+                                .timeout(RoutePolicies.tcpTimeout(spec.getTimeout()))
+                                .build()
+                );
+            case GRPC:
+                return RouteSpec.grpc(
+                        GrpcRouteSpecOptions.builder()
+                                .weightedTargets(weightedTargets)
+                                .match(
+                                        GrpcRouteMatch.builder()
+                                                .serviceName(spec.getGrpcServiceName())
+                                                .methodName(spec.getGrpcMethodName())
                                                 .build()
                                 )
-                        )
-                )
-                .serviceDiscovery(
-                        ServiceDiscovery.dns("tcpecho" + "." + serviceDomain)
+                                .retryPolicy(RoutePolicies.grpcRetryPolicy(spec.getRetry()))
+                                .timeout(RoutePolicies.grpcTimeout(spec.getTimeout()))
+                                .build()
+                );
+            case HTTP2:
+                return RouteSpec.http2(createHttpRouteSpecOptions(spec, weightedTargets));
+            case HTTP:
+            default:
+                return RouteSpec.http(createHttpRouteSpecOptions(spec, weightedTargets));
+        }
+    }
+
+    private static HttpRouteSpecOptions createHttpRouteSpecOptions(MeshRouteSpec spec,
+                                                                   List<WeightedTarget> weightedTargets) {
+        return HttpRouteSpecOptions.builder()
+                .weightedTargets(weightedTargets)
+                .match(
+                        HttpRouteMatch.builder()
+                                .path(
+                                        HttpRoutePathMatch.startsWith(spec.getPrefix())
+                                )
+                                .build()
                 )
+                .retryPolicy(RoutePolicies.httpRetryPolicy(spec.getRetry()))
+                .timeout(RoutePolicies.httpTimeout(spec.getTimeout()))
                 .build();
-
     }
 }
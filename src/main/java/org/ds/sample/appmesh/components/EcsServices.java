@@ -0,0 +1,182 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.CapacityMode;
+import org.ds.sample.appmesh.topology.ComputeSpec;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.ScalingSpec;
+import org.ds.sample.appmesh.topology.VirtualNodeSpec;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.services.applicationautoscaling.CfnScalingPolicy;
+import software.amazon.awscdk.services.applicationautoscaling.EnableScalingProps;
+import software.amazon.awscdk.services.cloudwatch.MathExpression;
+import software.amazon.awscdk.services.cloudwatch.Metric;
+import software.amazon.awscdk.services.ec2.ISecurityGroup;
+import software.amazon.awscdk.services.ec2.IVpc;
+import software.amazon.awscdk.services.ec2.Port;
+import software.amazon.awscdk.services.ec2.SecurityGroup;
+import software.amazon.awscdk.services.ecs.*;
+import software.amazon.awscdk.services.servicediscovery.DnsRecordType;
+import software.amazon.awscdk.services.servicediscovery.INamespace;
+import software.amazon.awscdk.services.servicediscovery.Service;
+import software.constructs.IConstruct;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs every task definition of the topology as an ECS service registered in the service namespace,
+ * or in the node's Cloud Map service with Cloud Map discovery, scaling it on CPU and on Envoy requests
+ * per task when the task declares scaling.
+ */
+public class EcsServices {
+    /**
+     * Security group shared by every task of the mesh, gateways included. Mesh tasks talk to each other
+     * through their Envoy proxies on any port.
+     */
+    public static SecurityGroup createMeshSecurityGroup(Stack stack, MeshTopology topology, IVpc vpc) {
+        SecurityGroup meshSecurityGroup = SecurityGroup.Builder.create(stack, "mesh-tasks-sg")
+                .vpc(vpc)
+                .description("Tasks of the " + topology.getMeshName() + " mesh")
+                .build();
+        meshSecurityGroup.addIngressRule(meshSecurityGroup, Port.allTcp());
+        return meshSecurityGroup;
+    }
+
+    /**
+     * Creates the services on the capacity of the topology's compute settings, {@code capacityProvider}
+     * being the instances' provider with EC2 capacity and null otherwise.
+     */
+    public static Map<String, BaseService> createServices(Stack stack, MeshTopology topology, ICluster cluster,
+                                                          INamespace namespace, ISecurityGroup meshSecurityGroup,
+                                                          Map<String, Service> cloudMapServices,
+                                                          AsgCapacityProvider capacityProvider,
+                                                          Map<String, TaskDefinition> taskDefinitions) {
+        Map<String, BaseService> services = new LinkedHashMap<>();
+        for (VirtualNodeSpec node : topology.getVirtualNodes()) {
+            TaskDefinition taskDef = taskDefinitions.get(node.getName());
+            if (taskDef == null) {
+                continue;
+            }
+            Service cloudMapService = cloudMapServices.get(node.getDiscoveryService());
+            BaseService service = createService(stack, topology.getCompute(), node, cluster,
+                    cloudMapService == null ? namespace : null, taskDef, meshSecurityGroup, capacityProvider);
+            if (cloudMapService != null) {
+                service.associateCloudMapService(AssociateCloudMapServiceOptions.builder()
+                        .service(cloudMapService)
+                        .build());
+            }
+            ScalingSpec scaling = node.getTask().getScaling();
+            if (scaling != null) {
+                addAutoScaling(service, topology.getMeshName(), node, scaling);
+            }
+            services.put(node.getName(), service);
+        }
+
+        return services;
+    }
+
+    /**
+     * Creates the service, registering it in {@code namespace} under the node's host name unless null.
+     */
+    private static BaseService createService(Stack stack, ComputeSpec compute, VirtualNodeSpec node, ICluster cluster,
+                                             INamespace namespace, TaskDefinition taskDef,
+                                             ISecurityGroup securityGroup, AsgCapacityProvider capacityProvider) {
+        ScalingSpec scaling = node.getTask().getScaling();
+        CloudMapOptions cloudMapOptions = namespace == null ? null : CloudMapOptions.builder()
+                .name(node.getHostname())
+                .cloudMapNamespace(namespace)
+                .dnsRecordType(DnsRecordType.A)
+                .dnsTtl(Duration.seconds(10))
+                .build();
+
+        if (compute.getCapacity() == CapacityMode.EC2) {
+            return Ec2Service.Builder.create(stack, node.getName() + "-service")
+                    .cluster(cluster)
+                    .taskDefinition(taskDef)
+                    .desiredCount(scaling != null ? scaling.getMinCapacity() : 1)
+                    .securityGroups(Arrays.asList(securityGroup))
+                    .cloudMapOptions(cloudMapOptions)
+                    .capacityProviderStrategies(ClusterCapacity.capacityProviderStrategies(compute, capacityProvider))
+                    .placementStrategies(ClusterCapacity.placementStrategies(compute))
+                    .build();
+        }
+        return FargateService.Builder.create(stack, node.getName() + "-service")
+                .cluster(cluster)
+                .taskDefinition(taskDef)
+                .desiredCount(scaling != null ? scaling.getMinCapacity() : 1)
+                .securityGroups(Arrays.asList(securityGroup))
+                .cloudMapOptions(cloudMapOptions)
+                .capacityProviderStrategies(ClusterCapacity.capacityProviderStrategies(compute, capacityProvider))
+                .build();
+    }
+
+    private static void addAutoScaling(BaseService service, String meshName, VirtualNodeSpec node,
+                                       ScalingSpec scaling) {
+        ScalableTaskCount taskCount = service.autoScaleTaskCount(
+                EnableScalingProps.builder()
+                        .minCapacity(scaling.getMinCapacity())
+                        .maxCapacity(scaling.getMaxCapacity())
+                        .build()
+        );
+
+        if (scaling.getTargetCpuPercent() != null) {
+            taskCount.scaleOnCpuUtilization("cpu-scaling",
+                    CpuUtilizationScalingProps.builder()
+                            .targetUtilizationPercent(scaling.getTargetCpuPercent())
+                            .scaleInCooldown(Duration.seconds(scaling.getScaleInCooldownSeconds()))
+                            .scaleOutCooldown(Duration.seconds(scaling.getScaleOutCooldownSeconds()))
+                            .build()
+            );
+        }
+
+        if (scaling.getTargetRequestsPerTask() != null) {
+            String ingressCluster = EnvoyMetrics.ingressClusterName(meshName, node.getVirtualNodeName(),
+                    node.getProtocol(), node.getPort());
+            taskCount.scaleToTrackCustomMetric("requests-scaling",
+                    TrackCustomMetricProps.builder()
+                            .metric(EnvoyMetrics.ingressRequests(node.getVirtualNodeName(), ingressCluster))
+                            .targetValue(scaling.getTargetRequestsPerTask())
+                            .scaleInCooldown(Duration.seconds(scaling.getScaleInCooldownSeconds()))
+                            .scaleOutCooldown(Duration.seconds(scaling.getScaleOutCooldownSeconds()))
+                            .build()
+            );
+            trackExpression(taskCount.getNode().findChild("Target").getNode().findChild("requests-scaling"),
+                    EnvoyMetrics.requestsPerTask(node.getVirtualNodeName(), ingressCluster, service));
+        }
+    }
+
+    /**
+     * Makes a target tracking policy track a metric math expression, which CDK 2.1 cannot render, by
+     * replacing its metric with the expression's queries.
+     */
+    private static void trackExpression(IConstruct policy, MathExpression expression) {
+        CfnScalingPolicy cfnPolicy = (CfnScalingPolicy) policy.getNode().getDefaultChild();
+        String specification = "TargetTrackingScalingPolicyConfiguration.CustomizedMetricSpecification";
+        for (String property : Arrays.asList("MetricName", "Namespace", "Dimensions", "Statistic", "Unit")) {
+            cfnPolicy.addPropertyDeletionOverride(specification + "." + property);
+        }
+
+        List<Map<String, Object>> queries = new ArrayList<>();
+        expression.getUsingMetrics().forEach((id, usingMetric) -> {
+            Metric metric = (Metric) usingMetric;
+            List<Map<String, Object>> dimensions = new ArrayList<>();
+            metric.getDimensions().forEach((name, value) -> dimensions.add(Map.of("Name", name, "Value", value)));
+            queries.add(Map.of(
+                    "Id", id,
+                    "MetricStat", Map.of(
+                            "Metric", Map.of(
+                                    "Namespace", metric.getNamespace(),
+                                    "MetricName", metric.getMetricName(),
+                                    "Dimensions", dimensions),
+                            "Stat", metric.getStatistic()),
+                    "ReturnData", false));
+        });
+        queries.add(Map.of("Id", "expression", "Expression", expression.getExpression(),
+                "Label", expression.getLabel(), "ReturnData", true));
+        cfnPolicy.addPropertyOverride(specification + ".Metrics", queries);
+    }
+}
@@ -0,0 +1,168 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.ListenerProtocol;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.services.cloudwatch.MathExpression;
+import software.amazon.awscdk.services.cloudwatch.Metric;
+import software.amazon.awscdk.services.ecs.*;
+
+import java.util.Map;
+
+/**
+ * Envoy statistics shipped to CloudWatch by a CloudWatch agent sidecar listening for DogStatsD.
+ *
+ * Envoy tags every stat with the virtual node it proxies for, and the agent rolls the stats up on that
+ * tag, so each metric has one dimension per virtual node. Response counts are also kept per response
+ * code class, and cluster stats per Envoy cluster.
+ */
+public class EnvoyMetrics {
+    public static final String NAMESPACE = "AppMeshEnvoy";
+    public static final String VIRTUAL_NODE_DIMENSION = "appmesh.virtual_node";
+    public static final String RESPONSE_CODE_CLASS_DIMENSION = "envoy.response_code_class";
+    public static final String CLUSTER_NAME_DIMENSION = "envoy.cluster_name";
+    public static final String UPSTREAM_REQUESTS = "envoy.cluster.upstream_rq_total";
+    public static final String UPSTREAM_REQUEST_TIME = "envoy.cluster.upstream_rq_time";
+    public static final String UPSTREAM_RESPONSES = "envoy.cluster.upstream_rq_xx";
+    public static final String UPSTREAM_RETRIES = "envoy.cluster.upstream_rq_retry";
+    public static final String OUTLIER_EJECTIONS = "envoy.cluster.outlier_detection.ejections_enforced_total";
+    public static final String DOWNSTREAM_ACTIVE_CONNECTIONS = "envoy.http.downstream_cx_active";
+    public static final int STATSD_PORT = 8125;
+
+    private static final String AGENT_CONFIG = "{"
+            + "\"metrics\":{"
+            + "\"namespace\":\"" + NAMESPACE + "\","
+            + "\"metrics_collected\":{\"statsd\":{"
+            + "\"service_address\":\":" + STATSD_PORT + "\","
+            + "\"metrics_collection_interval\":60,"
+            + "\"metrics_aggregation_interval\":60"
+            + "}},"
+            + "\"aggregation_dimensions\":["
+            + "[\"" + VIRTUAL_NODE_DIMENSION + "\"],"
+            + "[\"" + VIRTUAL_NODE_DIMENSION + "\",\"" + RESPONSE_CODE_CLASS_DIMENSION + "\"],"
+            + "[\"" + VIRTUAL_NODE_DIMENSION + "\",\"" + CLUSTER_NAME_DIMENSION + "\"]"
+            + "]"
+            + "}}";
+
+    private static Metric nodeMetric(String metricName, String virtualNodeName, String statistic) {
+        return Metric.Builder.create()
+                .namespace(NAMESPACE)
+                .metricName(metricName)
+                .dimensionsMap(Map.of(VIRTUAL_NODE_DIMENSION, virtualNodeName))
+                .statistic(statistic)
+                .period(Duration.minutes(1))
+                .build();
+    }
+
+    /**
+     * Upstream request time in milliseconds, statistic being a percentile such as p50 or p99.
+     */
+    public static Metric upstreamLatency(String virtualNodeName, String statistic) {
+        return nodeMetric(UPSTREAM_REQUEST_TIME, virtualNodeName, statistic);
+    }
+
+    public static Metric upstreamRequests(String virtualNodeName) {
+        return nodeMetric(UPSTREAM_REQUESTS, virtualNodeName, "Sum");
+    }
+
+    /**
+     * Upstream 5xx responses of the virtual node.
+     */
+    public static Metric upstreamServerErrors(String virtualNodeName) {
+        return Metric.Builder.create()
+                .namespace(NAMESPACE)
+                .metricName(UPSTREAM_RESPONSES)
+                .dimensionsMap(Map.of(VIRTUAL_NODE_DIMENSION, virtualNodeName, RESPONSE_CODE_CLASS_DIMENSION, "5"))
+                .statistic("Sum")
+                .period(Duration.minutes(1))
+                .build();
+    }
+
+    public static Metric upstreamRetries(String virtualNodeName) {
+        return nodeMetric(UPSTREAM_RETRIES, virtualNodeName, "Sum");
+    }
+
+    public static Metric outlierEjections(String virtualNodeName) {
+        return nodeMetric(OUTLIER_EJECTIONS, virtualNodeName, "Sum");
+    }
+
+    /**
+     * Peak of the downstream connections gauge over the period. A sum would add up every sample of it.
+     */
+    public static Metric activeConnections(String virtualNodeName) {
+        return nodeMetric(DOWNSTREAM_ACTIVE_CONNECTIONS, virtualNodeName, "Maximum");
+    }
+
+    /**
+     * Envoy cluster App Mesh configures for the traffic arriving on a virtual node's listener.
+     */
+    public static String ingressClusterName(String meshName, String virtualNodeName, ListenerProtocol protocol,
+                                            int port) {
+        return "cds_ingress_" + meshName + "_" + virtualNodeName + "_" + protocol.name().toLowerCase() + "_" + port;
+    }
+
+    /**
+     * Requests the tasks of a virtual node received on its listener, summed over all its tasks.
+     */
+    public static Metric ingressRequests(String virtualNodeName, String ingressClusterName) {
+        return Metric.Builder.create()
+                .namespace(NAMESPACE)
+                .metricName(UPSTREAM_REQUESTS)
+                .dimensionsMap(Map.of(VIRTUAL_NODE_DIMENSION, virtualNodeName, CLUSTER_NAME_DIMENSION, ingressClusterName))
+                .statistic("Sum")
+                .period(Duration.minutes(1))
+                .build();
+    }
+
+    /**
+     * Requests received by each task of the service over a minute: the node's ingress requests divided by
+     * the running task count, which Container Insights publishes.
+     */
+    public static MathExpression requestsPerTask(String virtualNodeName, String ingressClusterName,
+                                                 BaseService service) {
+        Metric runningTasks = Metric.Builder.create()
+                .namespace("ECS/ContainerInsights")
+                .metricName("RunningTaskCount")
+                .dimensionsMap(Map.of("ClusterName", service.getCluster().getClusterName(),
+                        "ServiceName", service.getServiceName()))
+                .statistic("Average")
+                .period(Duration.minutes(1))
+                .build();
+        return MathExpression.Builder.create()
+                .expression("requests / tasks")
+                .usingMetrics(Map.of("requests", ingressRequests(virtualNodeName, ingressClusterName),
+                        "tasks", runningTasks))
+                .label("Requests per task")
+                .period(Duration.minutes(1))
+                .build();
+    }
+
+    /**
+     * Envoy environment enabling its DogStatsD sink, tagged with the mesh and virtual node.
+     */
+    public static Map<String, String> envoyEnvironment() {
+        return Map.of(
+                "ENABLE_ENVOY_STATS_TAGS", "1",
+                "ENABLE_ENVOY_DOG_STATSD", "1",
+                "STATSD_PORT", String.valueOf(STATSD_PORT)
+        );
+    }
+
+    /**
+     * Adds the CloudWatch agent container receiving the stats of an Envoy configured with
+     * {@link #envoyEnvironment()}.
+     */
+    public static ContainerDefinition addStatsExporter(TaskDefinition taskDef, LogDriver logDriver) {
+        return taskDef.addContainer("cw-agent",
+                ContainerDefinitionOptions.builder()
+                        .containerName("cw-agent")
+                        .image(ContainerImage.fromRegistry("public.ecr.aws/cloudwatch-agent/cloudwatch-agent:latest"))
+                        .essential(false)
+                        // Runs as the proxy user so its calls to CloudWatch bypass Envoy's egress interception
+                        .user(String.valueOf(EnvoySidecar.PROXY_UID))
+                        .memoryLimitMiB(128)
+                        .environment(Map.of("CW_CONFIG_CONTENT", AGENT_CONFIG))
+                        .logging(logDriver)
+                        .build()
+        );
+    }
+}
@@ -0,0 +1,157 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.EnvoySpec;
+import software.amazon.awscdk.CfnMapping;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.Token;
+import software.amazon.awscdk.services.ecr.IRepository;
+import software.amazon.awscdk.services.ecr.Repository;
+import software.amazon.awscdk.services.ecr.RepositoryAttributes;
+import software.amazon.awscdk.services.ecs.*;
+import software.constructs.IConstruct;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds the App Mesh Envoy proxy to a task definition, tuned by an {@link EnvoySpec}.
+ */
+public class EnvoySidecar {
+    public static final String CONTAINER_NAME = "envoy";
+    public static final int PROXY_UID = 1337;
+    public static final int ADMIN_PORT = 9901;
+    public static final int INGRESS_PORT = 15000;
+    public static final int EGRESS_PORT = 15001;
+
+    private static final String REPOSITORY_NAME = "aws-appmesh-envoy";
+    private static final String REPOSITORY_ID = "envoyRepo";
+    private static final String DEFAULT_IMAGE_ACCOUNT = "840364872350";
+    // Regions where App Mesh publishes the Envoy image from another account than the default one
+    private static final Map<String, String> IMAGE_ACCOUNTS = Map.of(
+            "af-south-1", "924023996002",
+            "ap-east-1", "856666278305",
+            "ap-southeast-3", "909464085924",
+            "eu-south-1", "422531588944",
+            "me-south-1", "772975370895"
+    );
+    private static final List<String> DEFAULT_ACCOUNT_REGIONS = Arrays.asList(
+            "us-east-1", "us-east-2", "us-west-1", "us-west-2", "ca-central-1", "sa-east-1",
+            "eu-west-1", "eu-west-2", "eu-west-3", "eu-central-1", "eu-north-1",
+            "ap-northeast-1", "ap-northeast-2", "ap-northeast-3", "ap-south-1", "ap-southeast-1", "ap-southeast-2"
+    );
+
+    /**
+     * Imports the Envoy image repository of the stack's own region, so tasks never pull the image across
+     * regions. Environment agnostic stacks look the account up with a mapping on AWS::Region.
+     */
+    public static IRepository envoyRepository(Stack stack) {
+        IConstruct existing = stack.getNode().tryFindChild(REPOSITORY_ID);
+        if (existing != null) {
+            return (IRepository) existing;
+        }
+        String region = stack.getRegion();
+        String account;
+        if (Token.isUnresolved(region)) {
+            Map<String, Map<String, String>> accounts = new HashMap<>();
+            for (String mappedRegion : DEFAULT_ACCOUNT_REGIONS) {
+                accounts.put(mappedRegion, Map.of("account", DEFAULT_IMAGE_ACCOUNT));
+            }
+            IMAGE_ACCOUNTS.forEach((mappedRegion, mappedAccount) -> accounts.put(mappedRegion, Map.of("account", mappedAccount)));
+            account = CfnMapping.Builder.create(stack, "envoy-image-accounts")
+                    .mapping(accounts)
+                    .build()
+                    .findInMap(region, "account");
+        } else {
+            account = IMAGE_ACCOUNTS.getOrDefault(region, DEFAULT_IMAGE_ACCOUNT);
+        }
+
+        return Repository.fromRepositoryAttributes(stack, REPOSITORY_ID,
+                RepositoryAttributes.builder()
+                        .repositoryName(REPOSITORY_NAME)
+                        .repositoryArn("arn:" + stack.getPartition() + ":ecr:" + region + ":" + account + ":repository/" + REPOSITORY_NAME)
+                        .build());
+    }
+
+    /**
+     * Environment of the Envoy container for the given virtual node, excluding stats sinks.
+     */
+    public static Map<String, String> envoyEnvironment(EnvoySpec spec, String meshName, String virtualNodeName) {
+        return envoyEnvironment(spec, "mesh/" + meshName + "/virtualNode/" + virtualNodeName);
+    }
+
+    /**
+     * Environment of an Envoy running as the given virtual gateway, excluding stats sinks.
+     */
+    public static Map<String, String> gatewayEnvironment(EnvoySpec spec, String meshName, String virtualGatewayName) {
+        return envoyEnvironment(spec, "mesh/" + meshName + "/virtualGateway/" + virtualGatewayName);
+    }
+
+    private static Map<String, String> envoyEnvironment(EnvoySpec spec, String resourceName) {
+        Map<String, String> environment = new HashMap<>();
+        // Despite its name the variable also takes virtual gateway resources
+        environment.put("APPMESH_VIRTUAL_NODE_NAME", resourceName);
+        environment.put("ENVOY_LOG_LEVEL", spec.getLogLevel());
+        if (spec.getConcurrency() != null) {
+            environment.put("ENVOY_CONCURRENCY", String.valueOf(spec.getConcurrency()));
+        }
+        return environment;
+    }
+
+    public static ContainerDefinition addEnvoySidecar(TaskDefinition taskDef, EnvoySpec spec, IRepository envoyRepository,
+                                                      Map<String, String> environment, LogDriver logDriver) {
+        ContainerDefinition envoy = taskDef.addContainer(CONTAINER_NAME,
+                ContainerDefinitionOptions.builder()
+                        .containerName(CONTAINER_NAME)
+                        .image(RepositoryImage.fromEcrRepository(envoyRepository, spec.getImageTag()))
+                        .user(String.valueOf(PROXY_UID))
+                        .essential(true)
+                        .cpu(spec.getCpu())
+                        .memoryReservationMiB(spec.getMemoryReservationMiB())
+                        .memoryLimitMiB(spec.getMemoryLimitMiB())
+                        .portMappings(
+                                Arrays.asList(
+                                        PortMapping.builder()
+                                                .containerPort(ADMIN_PORT)
+                                                .hostPort(ADMIN_PORT)
+                                                .protocol(Protocol.TCP)
+                                                .build(),
+                                        PortMapping.builder()
+                                                .containerPort(INGRESS_PORT)
+                                                .hostPort(INGRESS_PORT)
+                                                .protocol(Protocol.TCP)
+                                                .build(),
+                                        PortMapping.builder()
+                                                .containerPort(EGRESS_PORT)
+                                                .hostPort(EGRESS_PORT)
+                                                .protocol(Protocol.TCP)
+                                                .build()
+                                )
+                        )
+                        .environment(environment)
+                        .logging(logDriver)
+                        .healthCheck(
+                                HealthCheck.builder()
+                                        .command(List.of(
+                                                "CMD-SHELL",
+                                                "curl -s http://localhost:" + ADMIN_PORT + "/server_info | grep state | grep -q LIVE"
+                                        ))
+                                        .interval(Duration.seconds(spec.getHealthCheckIntervalSeconds()))
+                                        .timeout(Duration.seconds(2))
+                                        .retries(3)
+                                        .build()
+                        )
+                        .build()
+        );
+
+        envoy.addUlimits(Ulimit.builder()
+                .name(UlimitName.NOFILE)
+                .hardLimit(spec.getNoFileLimit())
+                .softLimit(spec.getNoFileLimit())
+                .build());
+
+        return envoy;
+    }
+}
@@ -0,0 +1,136 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.PerformanceProfile;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.services.appmesh.*;
+
+/**
+ * Connection pool, outlier detection and timeout settings applied to virtual node listeners for each
+ * {@link PerformanceProfile}.
+ */
+public class ListenerProfiles {
+    public static HttpConnectionPool httpConnectionPool(PerformanceProfile profile) {
+        switch (profile) {
+            case LATENCY_SENSITIVE:
+                return HttpConnectionPool.builder()
+                        .maxConnections(100)
+                        .maxPendingRequests(50)
+                        .build();
+            case HIGH_THROUGHPUT:
+                return HttpConnectionPool.builder()
+                        .maxConnections(1024)
+                        .maxPendingRequests(1024)
+                        .build();
+            case BATCH:
+            default:
+                return HttpConnectionPool.builder()
+                        .maxConnections(64)
+                        .maxPendingRequests(2048)
+                        .build();
+        }
+    }
+
+    public static Http2ConnectionPool http2ConnectionPool(PerformanceProfile profile) {
+        switch (profile) {
+            case LATENCY_SENSITIVE:
+                return Http2ConnectionPool.builder().maxRequests(200).build();
+            case HIGH_THROUGHPUT:
+                return Http2ConnectionPool.builder().maxRequests(2048).build();
+            case BATCH:
+            default:
+                return Http2ConnectionPool.builder().maxRequests(2048).build();
+        }
+    }
+
+    public static GrpcConnectionPool grpcConnectionPool(PerformanceProfile profile) {
+        switch (profile) {
+            case LATENCY_SENSITIVE:
+                return GrpcConnectionPool.builder().maxRequests(200).build();
+            case HIGH_THROUGHPUT:
+                return GrpcConnectionPool.builder().maxRequests(2048).build();
+            case BATCH:
+            default:
+                return GrpcConnectionPool.builder().maxRequests(2048).build();
+        }
+    }
+
+    public static TcpConnectionPool tcpConnectionPool(PerformanceProfile profile) {
+        switch (profile) {
+            case LATENCY_SENSITIVE:
+                return TcpConnectionPool.builder().maxConnections(100).build();
+            case HIGH_THROUGHPUT:
+                return TcpConnectionPool.builder().maxConnections(1024).build();
+            case BATCH:
+            default:
+                return TcpConnectionPool.builder().maxConnections(64).build();
+        }
+    }
+
+    public static OutlierDetection outlierDetection(PerformanceProfile profile) {
+        switch (profile) {
+            case LATENCY_SENSITIVE:
+                return OutlierDetection.builder()
+                        .interval(Duration.seconds(5))
+                        .maxServerErrors(3)
+                        .baseEjectionDuration(Duration.seconds(15))
+                        .maxEjectionPercent(50)
+                        .build();
+            case HIGH_THROUGHPUT:
+                return OutlierDetection.builder()
+                        .interval(Duration.seconds(10))
+                        .maxServerErrors(5)
+                        .baseEjectionDuration(Duration.seconds(30))
+                        .maxEjectionPercent(30)
+                        .build();
+            case BATCH:
+            default:
+                return OutlierDetection.builder()
+                        .interval(Duration.seconds(30))
+                        .maxServerErrors(10)
+                        .baseEjectionDuration(Duration.seconds(60))
+                        .maxEjectionPercent(20)
+                        .build();
+        }
+    }
+
+    public static HttpTimeout httpTimeout(PerformanceProfile profile) {
+        switch (profile) {
+            case LATENCY_SENSITIVE:
+                return HttpTimeout.builder()
+                        .perRequest(Duration.seconds(2))
+                        .idle(Duration.seconds(30))
+                        .build();
+            case HIGH_THROUGHPUT:
+                return HttpTimeout.builder()
+                        .perRequest(Duration.seconds(5))
+                        .idle(Duration.seconds(60))
+                        .build();
+            case BATCH:
+            default:
+                return HttpTimeout.builder()
+                        .perRequest(Duration.seconds(120))
+                        .idle(Duration.seconds(300))
+                        .build();
+        }
+    }
+
+    public static GrpcTimeout grpcTimeout(PerformanceProfile profile) {
+        HttpTimeout timeout = httpTimeout(profile);
+        return GrpcTimeout.builder()
+                .perRequest(timeout.getPerRequest())
+                .idle(timeout.getIdle())
+                .build();
+    }
+
+    public static TcpTimeout tcpTimeout(PerformanceProfile profile) {
+        switch (profile) {
+            case LATENCY_SENSITIVE:
+                return TcpTimeout.builder().idle(Duration.seconds(30)).build();
+            case HIGH_THROUGHPUT:
+                return TcpTimeout.builder().idle(Duration.seconds(60)).build();
+            case BATCH:
+            default:
+                return TcpTimeout.builder().idle(Duration.seconds(300)).build();
+        }
+    }
+}
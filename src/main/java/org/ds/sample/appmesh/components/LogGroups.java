@@ -1,14 +1,87 @@
 package org.ds.sample.appmesh.components;
 
+import org.ds.sample.appmesh.topology.LoggingSpec;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.TaskSpec;
+import org.ds.sample.appmesh.topology.VirtualNodeSpec;
 import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.services.logs.ILogGroup;
 import software.amazon.awscdk.services.logs.LogGroup;
 import software.amazon.awscdk.services.logs.RetentionDays;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class LogGroups {
-    public static LogGroup createLogGroup(Stack stack) {
-        return LogGroup.Builder.create(stack, "ecs-service-log-group")
-                .retention(RetentionDays.TWO_WEEKS)
+    private static final String INGRESS_PREFIX = "ingress-";
+    private static final String SHARED_LOG_GROUP_ID = "ecs-service-log-group";
+    private static final Map<Integer, RetentionDays> RETENTION = Map.ofEntries(
+            Map.entry(1, RetentionDays.ONE_DAY),
+            Map.entry(3, RetentionDays.THREE_DAYS),
+            Map.entry(5, RetentionDays.FIVE_DAYS),
+            Map.entry(7, RetentionDays.ONE_WEEK),
+            Map.entry(14, RetentionDays.TWO_WEEKS),
+            Map.entry(30, RetentionDays.ONE_MONTH),
+            Map.entry(60, RetentionDays.TWO_MONTHS),
+            Map.entry(90, RetentionDays.THREE_MONTHS),
+            Map.entry(120, RetentionDays.FOUR_MONTHS),
+            Map.entry(150, RetentionDays.FIVE_MONTHS),
+            Map.entry(180, RetentionDays.SIX_MONTHS),
+            Map.entry(365, RetentionDays.ONE_YEAR),
+            Map.entry(400, RetentionDays.THIRTEEN_MONTHS),
+            Map.entry(545, RetentionDays.EIGHTEEN_MONTHS),
+            Map.entry(731, RetentionDays.TWO_YEARS),
+            Map.entry(1827, RetentionDays.FIVE_YEARS),
+            Map.entry(3653, RetentionDays.TEN_YEARS)
+    );
+
+    public static LogGroup createLogGroup(Stack stack, String id, int retentionDays) {
+        return LogGroup.Builder.create(stack, id)
+                .retention(RETENTION.get(retentionDays))
                 .build();
+    }
+
+    /**
+     * Log group of every service, keyed by virtual node name and by {@link #ingressKey} for the gateway.
+     * Services share one group unless the topology asks for one per service or their task sets its own
+     * retention.
+     */
+    public static Map<String, ILogGroup> createLogGroups(Stack stack, MeshTopology topology) {
+        LoggingSpec logging = topology.getLogging();
+        Map<String, ILogGroup> logGroups = new LinkedHashMap<>();
+        LogGroup shared = null;
+
+        for (VirtualNodeSpec node : topology.getVirtualNodes()) {
+            TaskSpec task = node.getTask();
+            if (task == null) {
+                continue;
+            }
+            if (logging.isGroupPerService() || task.getLogRetentionDays() != null) {
+                logGroups.put(node.getName(), createLogGroup(stack, node.getName() + "-log-group",
+                        task.getLogRetentionDays() != null ? task.getLogRetentionDays() : logging.getRetentionDays()));
+                continue;
+            }
+            if (shared == null) {
+                shared = createLogGroup(stack, SHARED_LOG_GROUP_ID, logging.getRetentionDays());
+            }
+            logGroups.put(node.getName(), shared);
+        }
+
+        if (topology.getIngress().isEnabled()) {
+            // Prefixed so that an ingress named after a virtual node gets a group of its own
+            String key = ingressKey(topology.getIngress().getName());
+            if (logging.isGroupPerService()) {
+                logGroups.put(key, createLogGroup(stack, key + "-log-group", logging.getRetentionDays()));
+            } else {
+                logGroups.put(key, shared != null ? shared
+                        : createLogGroup(stack, SHARED_LOG_GROUP_ID, logging.getRetentionDays()));
+            }
+        }
+
+        return logGroups;
+    }
 
+    public static String ingressKey(String ingressName) {
+        return INGRESS_PREFIX + ingressName;
     }
 }
@@ -0,0 +1,222 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.EnvoySpec;
+import org.ds.sample.appmesh.topology.IngressRouteSpec;
+import org.ds.sample.appmesh.topology.IngressSpec;
+import org.ds.sample.appmesh.topology.ListenerProtocol;
+import org.ds.sample.appmesh.topology.LoggingSpec;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.TracingSpec;
+import software.amazon.awscdk.CfnOutput;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.services.appmesh.*;
+import software.amazon.awscdk.services.ec2.ISecurityGroup;
+import software.amazon.awscdk.services.ec2.Peer;
+import software.amazon.awscdk.services.ec2.Port;
+import software.amazon.awscdk.services.ec2.SecurityGroup;
+import software.amazon.awscdk.services.ecs.*;
+import software.amazon.awscdk.services.elasticloadbalancingv2.AddNetworkTargetsProps;
+import software.amazon.awscdk.services.elasticloadbalancingv2.BaseNetworkListenerProps;
+import software.amazon.awscdk.services.elasticloadbalancingv2.NetworkListener;
+import software.amazon.awscdk.services.elasticloadbalancingv2.NetworkLoadBalancer;
+import software.amazon.awscdk.services.iam.IRole;
+import software.amazon.awscdk.services.logs.ILogGroup;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Ingress into the mesh: a virtual gateway with its gateway routes, the Envoy tasks running it as a
+ * Fargate service and the network load balancer in front of them.
+ */
+public class MeshIngress {
+    /**
+     * Creates the virtual gateway and its routes to the virtual services of the topology.
+     */
+    public static VirtualGateway createGateway(Stack stack, MeshTopology topology, IMesh mesh,
+                                               MeshResources meshResources) {
+        IngressSpec spec = topology.getIngress();
+        VirtualGateway gateway = createVirtualGateway(stack, mesh, spec);
+        for (IngressRouteSpec route : spec.getRoutes()) {
+            createGatewayRoute(stack, gateway, spec, route, meshResources.getVirtualServices().get(route.getService()));
+        }
+        return gateway;
+    }
+
+    /**
+     * Runs the virtual gateway of the topology on Fargate behind a network load balancer. The gateway is
+     * identified by name only, so it may live in another stack.
+     */
+    public static NetworkLoadBalancer createGatewayService(Stack stack, MeshTopology topology, ICluster cluster,
+                                                           ISecurityGroup meshSecurityGroup, IRole taskRole,
+                                                           IRole executionRole, ILogGroup logGroup) {
+        IngressSpec spec = topology.getIngress();
+        TaskDefinition taskDef = createGatewayTaskDefinition(stack, topology, spec, taskRole, executionRole, logGroup);
+        FargateService service = createFargateService(stack, spec, cluster, taskDef, meshSecurityGroup);
+        return createLoadBalancer(stack, spec, cluster, service);
+    }
+
+    public static VirtualGateway createVirtualGateway(Stack stack, IMesh mesh, IngressSpec spec) {
+        return VirtualGateway.Builder.create(stack, spec.getName() + "VirtualGateway")
+                .mesh(mesh)
+                .virtualGatewayName(spec.getVirtualGatewayName())
+                .listeners(Arrays.asList(createGatewayListener(spec)))
+                .build();
+    }
+
+    private static VirtualGatewayListener createGatewayListener(IngressSpec spec) {
+        if (spec.getProtocol() == ListenerProtocol.HTTP2) {
+            Http2ConnectionPool pool = ListenerProfiles.http2ConnectionPool(spec.getProfile());
+            return VirtualGatewayListener.http2(
+                    Http2GatewayListenerOptions.builder()
+                            .port(spec.getPort())
+                            .connectionPool(
+                                    Http2ConnectionPool.builder()
+                                            .maxRequests(spec.getMaxRequests() != null ? spec.getMaxRequests() : pool.getMaxRequests())
+                                            .build()
+                            )
+                            .build()
+            );
+        }
+        HttpConnectionPool pool = ListenerProfiles.httpConnectionPool(spec.getProfile());
+        return VirtualGatewayListener.http(
+                HttpGatewayListenerOptions.builder()
+                        .port(spec.getPort())
+                        .connectionPool(
+                                HttpConnectionPool.builder()
+                                        .maxConnections(spec.getMaxConnections() != null ? spec.getMaxConnections() : pool.getMaxConnections())
+                                        .maxPendingRequests(spec.getMaxPendingRequests() != null ? spec.getMaxPendingRequests() : pool.getMaxPendingRequests())
+                                        .build()
+                        )
+                        .build()
+        );
+    }
+
+    public static GatewayRoute createGatewayRoute(Stack stack, VirtualGateway gateway, IngressSpec ingress,
+                                                  IngressRouteSpec spec, IVirtualService target) {
+        HttpGatewayRouteSpecOptions options = HttpGatewayRouteSpecOptions.builder()
+                .routeTarget(target)
+                .match(
+                        HttpGatewayRouteMatch.builder()
+                                .path(HttpGatewayRoutePathMatch.startsWith(spec.getPrefix()))
+                                .build()
+                )
+                .build();
+        return GatewayRoute.Builder.create(stack, ingress.getName() + "-" + spec.getName() + "-gateway-route")
+                .virtualGateway(gateway)
+                .gatewayRouteName(spec.getName())
+                .routeSpec(ingress.getProtocol() == ListenerProtocol.HTTP2
+                        ? GatewayRouteSpec.http2(options)
+                        : GatewayRouteSpec.http(options))
+                .build();
+    }
+
+    /**
+     * Task running Envoy alone as the virtual gateway. ECS only stops it once the load balancer's
+     * deregistration delay is over, so connections drain while Envoy still serves them.
+     */
+    public static TaskDefinition createGatewayTaskDefinition(Stack stack, MeshTopology topology, IngressSpec spec,
+                                                             IRole taskRole, IRole executionRole, ILogGroup logGroup) {
+        EnvoySpec envoySpec = spec.getEnvoy() != null ? spec.getEnvoy() : topology.getEnvoy();
+        boolean exportStats = topology.getMetrics().isEnabled();
+        TracingSpec tracing = topology.getTracing();
+        LoggingSpec logging = topology.getLogging();
+        TaskDefinition taskDef = TaskDefinition.Builder.create(stack, spec.getName() + "-task")
+                .family(spec.getName())
+                .compatibility(Compatibility.FARGATE)
+                .taskRole(taskRole)
+                .executionRole(executionRole)
+                .cpu(spec.getCpu())
+                .memoryMiB(spec.getMemoryMiB())
+                .build();
+        ClusterCapacity.applyRuntimePlatform(taskDef, spec.getCpuArchitecture() != null
+                ? spec.getCpuArchitecture()
+                : topology.getCompute().getCpuArchitecture());
+
+        Map<String, String> envoyEnvironment = EnvoySidecar.gatewayEnvironment(envoySpec, topology.getMeshName(),
+                spec.getVirtualGatewayName());
+        if (exportStats) {
+            envoyEnvironment.putAll(EnvoyMetrics.envoyEnvironment());
+        }
+        if (tracing.isEnabled()) {
+            envoyEnvironment.putAll(XRayTracing.envoyEnvironment());
+        }
+        ContainerDefinition envoy = EnvoySidecar.addEnvoySidecar(taskDef, envoySpec, EnvoySidecar.envoyRepository(stack),
+                envoyEnvironment, ContainerLogging.logDriver(taskDef, logging, logGroup, spec.getName() + "-envoy"));
+        envoy.addPortMappings(PortMapping.builder()
+                .containerPort(spec.getPort())
+                .hostPort(spec.getPort())
+                .protocol(Protocol.TCP)
+                .build());
+
+        if (exportStats) {
+            EnvoyMetrics.addStatsExporter(taskDef,
+                    ContainerLogging.logDriver(taskDef, logging, logGroup, spec.getName() + "-cw-agent"));
+        }
+        if (tracing.isEnabled()) {
+            XRayTracing.addDaemon(taskDef,
+                    ContainerLogging.logDriver(taskDef, logging, logGroup, spec.getName() + "-xray"));
+            XRayTracing.addSamplingRules(taskDef, tracing, envoy,
+                    ContainerLogging.logDriver(taskDef, logging, logGroup, spec.getName() + "-xray-sampling"));
+        }
+
+        return taskDef;
+    }
+
+    private static FargateService createFargateService(Stack stack, IngressSpec spec, ICluster cluster,
+                                                       TaskDefinition taskDef, ISecurityGroup meshSecurityGroup) {
+        // The load balancer does not preserve client addresses for ip targets, so traffic comes from the VPC
+        SecurityGroup gatewaySecurityGroup = SecurityGroup.Builder.create(stack, spec.getName() + "-sg")
+                .vpc(cluster.getVpc())
+                .description("Virtual gateway " + spec.getVirtualGatewayName())
+                .build();
+        gatewaySecurityGroup.addIngressRule(Peer.ipv4(cluster.getVpc().getVpcCidrBlock()), Port.tcp(spec.getPort()));
+
+        return FargateService.Builder.create(stack, spec.getName() + "-service")
+                .cluster(cluster)
+                .taskDefinition(taskDef)
+                .desiredCount(spec.getDesiredCount())
+                .securityGroups(Arrays.asList(meshSecurityGroup, gatewaySecurityGroup))
+                .build();
+    }
+
+    private static NetworkLoadBalancer createLoadBalancer(Stack stack, IngressSpec spec, ICluster cluster,
+                                                          FargateService service) {
+        NetworkLoadBalancer loadBalancer = NetworkLoadBalancer.Builder.create(stack, spec.getName() + "-nlb")
+                .vpc(cluster.getVpc())
+                .internetFacing(spec.isInternetFacing())
+                .crossZoneEnabled(spec.isCrossZone())
+                .build();
+
+        NetworkListener listener = loadBalancer.addListener(spec.getName() + "-listener",
+                BaseNetworkListenerProps.builder()
+                        .port(spec.getLoadBalancerPort())
+                        .build());
+        listener.addTargets(spec.getName() + "-targets",
+                AddNetworkTargetsProps.builder()
+                        .port(spec.getPort())
+                        .deregistrationDelay(Duration.seconds(spec.getDeregistrationDelaySeconds()))
+                        .healthCheck(
+                                software.amazon.awscdk.services.elasticloadbalancingv2.HealthCheck.builder()
+                                        .interval(Duration.seconds(10))
+                                        .healthyThresholdCount(2)
+                                        .unhealthyThresholdCount(2)
+                                        .build()
+                        )
+                        .targets(Arrays.asList(
+                                service.loadBalancerTarget(
+                                        LoadBalancerTargetOptions.builder()
+                                                .containerName(EnvoySidecar.CONTAINER_NAME)
+                                                .containerPort(spec.getPort())
+                                                .build()
+                                )
+                        ))
+                        .build());
+
+        CfnOutput.Builder.create(stack, spec.getName() + "-dns")
+                .value(loadBalancer.getLoadBalancerDnsName())
+                .build();
+        return loadBalancer;
+    }
+}
@@ -0,0 +1,113 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.MetricsSpec;
+import org.ds.sample.appmesh.topology.VirtualNodeSpec;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.services.cloudwatch.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dashboards and alarms over the Envoy metrics of every virtual node, see {@link EnvoyMetrics}.
+ */
+public class MeshMonitoring {
+    /**
+     * Creates one row of graphs per virtual node, spread over as many dashboards as needed to hold
+     * {@link MetricsSpec#getNodesPerDashboard()} nodes each.
+     */
+    public static List<Dashboard> createDashboards(Stack stack, MeshTopology topology) {
+        List<Dashboard> dashboards = new ArrayList<>();
+        int nodesPerDashboard = topology.getMetrics().getNodesPerDashboard();
+        List<VirtualNodeSpec> nodes = topology.getVirtualNodes();
+
+        for (int start = 0; start < nodes.size(); start += nodesPerDashboard) {
+            List<List<IWidget>> rows = new ArrayList<>();
+            for (VirtualNodeSpec node : nodes.subList(start, Math.min(start + nodesPerDashboard, nodes.size()))) {
+                rows.add(createNodeRow(node.getVirtualNodeName()));
+            }
+            int index = start / nodesPerDashboard;
+            dashboards.add(Dashboard.Builder.create(stack, "mesh-dashboard-" + index)
+                    .dashboardName(topology.getMeshName() + "-envoy-" + index)
+                    .widgets(rows)
+                    .build());
+        }
+
+        return dashboards;
+    }
+
+    private static List<IWidget> createNodeRow(String virtualNodeName) {
+        return Arrays.asList(
+                GraphWidget.Builder.create()
+                        .title(virtualNodeName + " upstream latency (ms)")
+                        .left(Arrays.asList(
+                                EnvoyMetrics.upstreamLatency(virtualNodeName, "p50"),
+                                EnvoyMetrics.upstreamLatency(virtualNodeName, "p99")
+                        ))
+                        .width(8)
+                        .build(),
+                GraphWidget.Builder.create()
+                        .title(virtualNodeName + " traffic")
+                        .left(Arrays.asList(EnvoyMetrics.upstreamRequests(virtualNodeName)))
+                        .right(Arrays.asList(EnvoyMetrics.activeConnections(virtualNodeName)))
+                        .width(8)
+                        .build(),
+                GraphWidget.Builder.create()
+                        .title(virtualNodeName + " retries and ejections")
+                        .left(Arrays.asList(
+                                EnvoyMetrics.upstreamRetries(virtualNodeName),
+                                EnvoyMetrics.outlierEjections(virtualNodeName),
+                                EnvoyMetrics.upstreamServerErrors(virtualNodeName)
+                        ))
+                        .width(8)
+                        .build()
+        );
+    }
+
+    /**
+     * Alarms when the p99 upstream latency of a virtual node stays above the threshold of the topology.
+     * Nodes without traffic publish no data and stay green.
+     */
+    public static Map<String, Alarm> createLatencyAlarms(Stack stack, MeshTopology topology) {
+        Map<String, Alarm> alarms = new LinkedHashMap<>();
+        MetricsSpec metrics = topology.getMetrics();
+
+        for (VirtualNodeSpec node : topology.getVirtualNodes()) {
+            alarms.put(node.getName(), createLatencyAlarm(stack, node.getName() + "-p99-latency-alarm",
+                    node.getVirtualNodeName(), metrics.getP99LatencyAlarmMillis(), metrics.getAlarmEvaluationPeriods()));
+        }
+
+        return alarms;
+    }
+
+    public static Alarm createLatencyAlarm(Stack stack, String id, String virtualNodeName, int thresholdMillis,
+                                           int evaluationPeriods) {
+        return Alarm.Builder.create(stack, id)
+                .alarmDescription("p99 upstream latency of " + virtualNodeName + " above " + thresholdMillis + "ms")
+                .metric(EnvoyMetrics.upstreamLatency(virtualNodeName, "p99"))
+                .threshold(thresholdMillis)
+                .comparisonOperator(ComparisonOperator.GREATER_THAN_THRESHOLD)
+                .evaluationPeriods(evaluationPeriods)
+                .treatMissingData(TreatMissingData.NOT_BREACHING)
+                .build();
+    }
+
+    /**
+     * Alarms when a virtual node answers more than {@code maxServerErrors} 5xx responses a minute.
+     */
+    public static Alarm createServerErrorAlarm(Stack stack, String id, String virtualNodeName, int maxServerErrors,
+                                               int evaluationPeriods) {
+        return Alarm.Builder.create(stack, id)
+                .alarmDescription("upstream 5xx responses of " + virtualNodeName + " above " + maxServerErrors + " a minute")
+                .metric(EnvoyMetrics.upstreamServerErrors(virtualNodeName))
+                .threshold(maxServerErrors)
+                .comparisonOperator(ComparisonOperator.GREATER_THAN_THRESHOLD)
+                .evaluationPeriods(evaluationPeriods)
+                .treatMissingData(TreatMissingData.NOT_BREACHING)
+                .build();
+    }
+}
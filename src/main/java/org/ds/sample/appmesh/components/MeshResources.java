@@ -0,0 +1,47 @@
+package org.ds.sample.appmesh.components;
+
+import software.amazon.awscdk.services.appmesh.Route;
+import software.amazon.awscdk.services.appmesh.VirtualNode;
+import software.amazon.awscdk.services.appmesh.VirtualRouter;
+import software.amazon.awscdk.services.appmesh.VirtualService;
+import software.amazon.awscdk.services.servicediscovery.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mesh constructs created from a topology, keyed by their name in the topology.
+ */
+public class MeshResources {
+    private final Map<String, VirtualNode> virtualNodes = new LinkedHashMap<>();
+    private final Map<String, VirtualRouter> virtualRouters = new LinkedHashMap<>();
+    private final Map<String, Route> routes = new LinkedHashMap<>();
+    private final Map<String, VirtualService> virtualServices = new LinkedHashMap<>();
+    private final Map<String, Service> cloudMapServices = new LinkedHashMap<>();
+
+    public Map<String, VirtualNode> getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public Map<String, VirtualRouter> getVirtualRouters() {
+        return virtualRouters;
+    }
+
+    /**
+     * Routes keyed by router name and route name, separated by a slash.
+     */
+    public Map<String, Route> getRoutes() {
+        return routes;
+    }
+
+    public Map<String, VirtualService> getVirtualServices() {
+        return virtualServices;
+    }
+
+    /**
+     * Cloud Map services of the nodes discovered through Cloud Map, empty with DNS discovery.
+     */
+    public Map<String, Service> getCloudMapServices() {
+        return cloudMapServices;
+    }
+}
@@ -0,0 +1,90 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.DiscoveryMode;
+import org.ds.sample.appmesh.topology.MeshRouteSpec;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.VirtualNodeSpec;
+import org.ds.sample.appmesh.topology.VirtualRouterSpec;
+import org.ds.sample.appmesh.topology.VirtualServiceSpec;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.services.appmesh.*;
+import software.amazon.awscdk.services.servicediscovery.DnsRecordType;
+import software.amazon.awscdk.services.servicediscovery.HealthCheckCustomConfig;
+import software.amazon.awscdk.services.servicediscovery.INamespace;
+import software.amazon.awscdk.services.servicediscovery.Service;
+
+/**
+ * Creates the virtual nodes, routers, routes and services described by a {@link MeshTopology}.
+ *
+ * Each element of the topology is visited once and references are resolved through hash lookups,
+ * so synth time grows linearly with the number of services.
+ */
+public class MeshTopologyFactory {
+    public static MeshResources createMeshResources(Stack stack, MeshTopology topology, IMesh mesh,
+                                                   INamespace namespace) {
+        MeshResources resources = new MeshResources();
+        String serviceDomain = topology.getServiceDomain();
+
+        if (topology.getDiscovery() == DiscoveryMode.CLOUD_MAP) {
+            // Services are created up front, the ECS services register their tasks in them later
+            for (VirtualNodeSpec spec : topology.getVirtualNodes()) {
+                if (spec.getDiscoveryService().equals(spec.getName())) {
+                    resources.getCloudMapServices().put(spec.getName(), createCloudMapService(stack, namespace, spec));
+                }
+            }
+        }
+
+        for (VirtualNodeSpec spec : topology.getVirtualNodes()) {
+            resources.getVirtualNodes().put(spec.getName(), topology.getDiscovery() == DiscoveryMode.CLOUD_MAP
+                    ? DemoAppMesh.createVirtualNode(stack, mesh, spec,
+                            resources.getCloudMapServices().get(spec.getDiscoveryService()))
+                    : DemoAppMesh.createVirtualNode(stack, serviceDomain, mesh, spec));
+        }
+
+        for (VirtualRouterSpec routerSpec : topology.getVirtualRouters()) {
+            VirtualRouter router = DemoAppMesh.createVirtualRouter(stack, mesh, routerSpec);
+            resources.getVirtualRouters().put(routerSpec.getName(), router);
+            for (MeshRouteSpec routeSpec : routerSpec.getRoutes()) {
+                resources.getRoutes().put(routerSpec.getName() + "/" + routeSpec.getName(),
+                        DemoAppMesh.createRoute(stack, mesh, router, routerSpec, routeSpec,
+                                resources.getVirtualNodes()));
+            }
+        }
+
+        for (VirtualServiceSpec spec : topology.getVirtualServices()) {
+            VirtualServiceProvider provider = spec.getRouter() != null
+                    ? VirtualServiceProvider.virtualRouter(resources.getVirtualRouters().get(spec.getRouter()))
+                    : VirtualServiceProvider.virtualNode(resources.getVirtualNodes().get(spec.getNode()));
+            resources.getVirtualServices().put(spec.getName(),
+                    VirtualService.Builder.create(stack, spec.getId())
+                            .virtualServiceName(spec.getName() + "." + serviceDomain)
+                            .virtualServiceProvider(provider)
+                            .build());
+        }
+
+        // Backends are wired last since virtual services are created after the nodes calling them
+        for (VirtualNodeSpec spec : topology.getVirtualNodes()) {
+            VirtualNode node = resources.getVirtualNodes().get(spec.getName());
+            for (String backend : spec.getBackends()) {
+                node.addBackend(Backend.virtualService(resources.getVirtualServices().get(backend)));
+            }
+        }
+
+        return resources;
+    }
+
+    /**
+     * Cloud Map service keeping A records under the node's host name, so applications still resolve it.
+     * ECS reports task health to it directly.
+     */
+    private static Service createCloudMapService(Stack stack, INamespace namespace, VirtualNodeSpec spec) {
+        return Service.Builder.create(stack, spec.getName() + "-cloud-map-service")
+                .namespace(namespace)
+                .name(spec.getHostname())
+                .dnsRecordType(DnsRecordType.A)
+                .dnsTtl(Duration.seconds(10))
+                .customHealthCheck(HealthCheckCustomConfig.builder().failureThreshold(1).build())
+                .build();
+    }
+}
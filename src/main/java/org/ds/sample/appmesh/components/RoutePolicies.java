@@ -0,0 +1,95 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.RetrySpec;
+import org.ds.sample.appmesh.topology.TimeoutSpec;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.services.appmesh.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts the retry and timeout settings of a topology route into App Mesh route options.
+ */
+public class RoutePolicies {
+    public static HttpRetryPolicy httpRetryPolicy(RetrySpec retry) {
+        if (retry == null) {
+            return null;
+        }
+        return HttpRetryPolicy.builder()
+                .httpRetryEvents(events(HttpRetryEvent.class, retry.getHttpEvents()))
+                .tcpRetryEvents(events(TcpRetryEvent.class, retry.getTcpEvents()))
+                .retryAttempts(retry.getMaxRetries())
+                .retryTimeout(Duration.millis(retry.getPerRetryTimeoutMillis()))
+                .build();
+    }
+
+    public static GrpcRetryPolicy grpcRetryPolicy(RetrySpec retry) {
+        if (retry == null) {
+            return null;
+        }
+        return GrpcRetryPolicy.builder()
+                .grpcRetryEvents(events(GrpcRetryEvent.class, retry.getGrpcEvents()))
+                .httpRetryEvents(events(HttpRetryEvent.class, retry.getHttpEvents()))
+                .tcpRetryEvents(events(TcpRetryEvent.class, retry.getTcpEvents()))
+                .retryAttempts(retry.getMaxRetries())
+                .retryTimeout(Duration.millis(retry.getPerRetryTimeoutMillis()))
+                .build();
+    }
+
+    public static HttpTimeout httpTimeout(TimeoutSpec timeout) {
+        if (timeout == null) {
+            return null;
+        }
+        return HttpTimeout.builder()
+                .perRequest(millis(timeout.getPerRequestMillis()))
+                .idle(millis(timeout.getIdleMillis()))
+                .build();
+    }
+
+    public static GrpcTimeout grpcTimeout(TimeoutSpec timeout) {
+        if (timeout == null) {
+            return null;
+        }
+        return GrpcTimeout.builder()
+                .perRequest(millis(timeout.getPerRequestMillis()))
+                .idle(millis(timeout.getIdleMillis()))
+                .build();
+    }
+
+    public static TcpTimeout tcpTimeout(TimeoutSpec timeout) {
+        if (timeout == null) {
+            return null;
+        }
+        return TcpTimeout.builder()
+                .idle(millis(timeout.getIdleMillis()))
+                .build();
+    }
+
+    private static Duration millis(Long value) {
+        return value != null ? Duration.millis(value) : null;
+    }
+
+    /**
+     * Maps App Mesh event names such as server-error onto the CDK enum constants, null when empty so
+     * the event type is left out of the policy.
+     */
+    private static <E extends Enum<E>> List<E> events(Class<E> type, List<String> names) {
+        if (names.isEmpty()) {
+            return null;
+        }
+        List<E> events = new ArrayList<>(names.size());
+        for (String name : names) {
+            String constant = name.trim().toUpperCase().replace('-', '_');
+            if ("INTERNAL".equals(constant) && type == GrpcRetryEvent.class) {
+                constant = "INTERNAL_ERROR";
+            }
+            try {
+                events.add(Enum.valueOf(type, constant));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " " + name, e);
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,147 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.EnvoySpec;
+import org.ds.sample.appmesh.topology.LoggingSpec;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.TaskSpec;
+import org.ds.sample.appmesh.topology.TracingSpec;
+import org.ds.sample.appmesh.topology.VirtualNodeSpec;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.services.ecr.IRepository;
+import software.amazon.awscdk.services.ecr.Repository;
+import software.amazon.awscdk.services.ecs.*;
+import software.amazon.awscdk.services.iam.IRole;
+import software.amazon.awscdk.services.logs.ILogGroup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Creates one ECS task definition, application container plus Envoy proxy, for every virtual node
+ * of the topology that declares a task.
+ */
+public class TaskDefinitions {
+    public static Map<String, TaskDefinition> createTaskDefinitions(Stack stack, MeshTopology topology,
+                                                                    IRole taskRole, IRole executionRole,
+                                                                    Map<String, ILogGroup> logGroups) {
+        Map<String, TaskDefinition> taskDefinitions = new LinkedHashMap<>();
+        // Repositories are imported once per stack, however many tasks share them
+        Map<String, IRepository> repositories = new HashMap<>();
+        IRepository envoyRepository = null;
+
+        for (VirtualNodeSpec node : topology.getVirtualNodes()) {
+            TaskSpec task = node.getTask();
+            if (task == null) {
+                continue;
+            }
+            if (envoyRepository == null) {
+                envoyRepository = EnvoySidecar.envoyRepository(stack);
+            }
+            IRepository repository = repositories.computeIfAbsent(task.getRepository(),
+                    name -> Repository.fromRepositoryName(stack, name + "-repo", name));
+            EnvoySpec envoySpec = task.getEnvoy() != null ? task.getEnvoy() : topology.getEnvoy();
+
+            taskDefinitions.put(node.getName(),
+                    createTaskDefinition(stack, topology, node, RepositoryImage.fromEcrRepository(repository, task.getTag()),
+                            envoyRepository, envoySpec, taskRole, executionRole, logGroups.get(node.getName())));
+        }
+
+        return taskDefinitions;
+    }
+
+    /**
+     * Envoy stats are exported when the topology opts into metrics or the service scales on them.
+     */
+    private static boolean exportsStats(MeshTopology topology, TaskSpec task) {
+        return topology.getMetrics().isEnabled() || task.isScalingOnRequests();
+    }
+
+    public static TaskDefinition createTaskDefinition(Stack stack, MeshTopology topology, VirtualNodeSpec node,
+                                                      EcrImage appImage, IRepository envoyRepository, EnvoySpec envoySpec,
+                                                      IRole taskRole, IRole executionRole, ILogGroup logGroup) {
+        TaskSpec task = node.getTask();
+        boolean exportStats = exportsStats(topology, task);
+        TracingSpec tracing = topology.getTracing();
+        LoggingSpec logging = topology.getLogging();
+        TaskDefinition taskDef = TaskDefinition.Builder.create(stack, task.getId() != null ? task.getId() : node.getName() + "-task")
+                .family(task.getFamily() != null ? task.getFamily() : node.getName())
+                .compatibility(Compatibility.EC2_AND_FARGATE)
+                .taskRole(taskRole)
+                .executionRole(executionRole)
+                .proxyConfiguration(
+                        AppMeshProxyConfiguration.Builder.create()
+                                .containerName(EnvoySidecar.CONTAINER_NAME)
+                                .properties(
+                                        AppMeshProxyConfigurationProps.builder()
+                                                .ignoredUid(EnvoySidecar.PROXY_UID)
+                                                .proxyIngressPort(EnvoySidecar.INGRESS_PORT)
+                                                .proxyEgressPort(EnvoySidecar.EGRESS_PORT)
+                                                .appPorts(Arrays.asList(node.getPort()))
+                                                .egressIgnoredIPs(Arrays.asList("169.254.170.2", "169.254.169.254"))
+                                                .build()
+                                )
+                                .build()
+                )
+                .cpu(task.getCpu())
+                .memoryMiB(task.getMemoryMiB())
+                .build();
+        ClusterCapacity.applyRuntimePlatform(taskDef, task.getCpuArchitecture() != null
+                ? task.getCpuArchitecture()
+                : topology.getCompute().getCpuArchitecture());
+
+        ContainerDefinition app = taskDef.addContainer("app",
+                ContainerDefinitionOptions.builder()
+                        .containerName("app")
+                        .image(appImage)
+                        .portMappings(
+                                Arrays.asList(PortMapping.builder()
+                                        .containerPort(node.getPort())
+                                        .hostPort(node.getPort())
+                                        .protocol(Protocol.TCP)
+                                        .build())
+                        )
+                        .environment(task.getEnvironment())
+                        .logging(ContainerLogging.logDriver(taskDef, logging, logGroup, node.getName()))
+                        .essential(true)
+                        .memoryLimitMiB(task.getAppMemoryLimitMiB())
+                        .build()
+        );
+        app.addUlimits(Ulimit.builder()
+                .name(UlimitName.NOFILE)
+                .hardLimit(task.getNoFileLimit())
+                .softLimit(task.getNoFileLimit())
+                .build());
+
+        Map<String, String> envoyEnvironment = EnvoySidecar.envoyEnvironment(envoySpec, topology.getMeshName(), node.getVirtualNodeName());
+        if (exportStats) {
+            envoyEnvironment.putAll(EnvoyMetrics.envoyEnvironment());
+        }
+        if (tracing.isEnabled()) {
+            envoyEnvironment.putAll(XRayTracing.envoyEnvironment());
+        }
+        ContainerDefinition envoy = EnvoySidecar.addEnvoySidecar(taskDef, envoySpec, envoyRepository,
+                envoyEnvironment, ContainerLogging.logDriver(taskDef, logging, logGroup, node.getName() + "-envoy"));
+
+        if (exportStats) {
+            EnvoyMetrics.addStatsExporter(taskDef,
+                    ContainerLogging.logDriver(taskDef, logging, logGroup, node.getName() + "-cw-agent"));
+        }
+        if (tracing.isEnabled()) {
+            XRayTracing.addDaemon(taskDef,
+                    ContainerLogging.logDriver(taskDef, logging, logGroup, node.getName() + "-xray"));
+            XRayTracing.addSamplingRules(taskDef, tracing, envoy,
+                    ContainerLogging.logDriver(taskDef, logging, logGroup, node.getName() + "-xray-sampling"));
+        }
+
+        app.addContainerDependencies(
+                ContainerDependency.builder()
+                        .container(envoy)
+                        .condition(ContainerDependencyCondition.HEALTHY)
+                        .build()
+        );
+
+        return taskDef;
+    }
+}
@@ -0,0 +1,238 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.MeshRouteSpec;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.TrafficShiftSpec;
+import org.ds.sample.appmesh.topology.VirtualNodeSpec;
+import org.ds.sample.appmesh.topology.VirtualRouterSpec;
+import org.ds.sample.appmesh.topology.WeightedTargetSpec;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.services.appmesh.CfnRoute;
+import software.amazon.awscdk.services.appmesh.Route;
+import software.amazon.awscdk.services.cloudwatch.Alarm;
+import software.amazon.awscdk.services.stepfunctions.*;
+import software.amazon.awscdk.services.stepfunctions.tasks.CallAwsService;
+import software.constructs.Construct;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progressive delivery of routes declaring a {@link TrafficShiftSpec}: a Step Functions state machine
+ * per route updates the route weights step by step, waits for the bake time, and moves on only while the
+ * canary's latency and 5xx alarms are green. A firing alarm, or an update or alarm check still failing
+ * after its retries, puts the declared weights back and fails the execution.
+ *
+ * States are named after the step percentage, e.g. {@code shift-5}, {@code bake-5} and {@code check-5},
+ * followed by {@code rollback} and {@code rolled-back} or {@code shifted}.
+ */
+public class TrafficShifting {
+    public static Map<String, StateMachine> createShiftControllers(Stack stack, MeshTopology topology,
+                                                                   MeshResources meshResources,
+                                                                   Map<String, Alarm> latencyAlarms) {
+        Map<String, StateMachine> controllers = new LinkedHashMap<>();
+        Map<String, VirtualNodeSpec> nodes = new HashMap<>();
+        for (VirtualNodeSpec node : topology.getVirtualNodes()) {
+            nodes.put(node.getName(), node);
+        }
+
+        for (VirtualRouterSpec router : topology.getVirtualRouters()) {
+            for (MeshRouteSpec route : router.getRoutes()) {
+                if (route.getShift() == null) {
+                    continue;
+                }
+                String key = router.getName() + "/" + route.getName();
+                controllers.put(key, createShiftController(stack, topology, router, route,
+                        meshResources.getRoutes().get(key), nodes, latencyAlarms));
+            }
+        }
+
+        return controllers;
+    }
+
+    public static StateMachine createShiftController(Stack stack, MeshTopology topology, VirtualRouterSpec router,
+                                                     MeshRouteSpec route, Route meshRoute,
+                                                     Map<String, VirtualNodeSpec> nodes,
+                                                     Map<String, Alarm> latencyAlarms) {
+        TrafficShiftSpec shift = route.getShift();
+        String canaryNodeName = nodes.get(shift.getCanary()).getVirtualNodeName();
+        Construct scope = new Construct(stack, router.getName() + "-" + route.getName() + "-shift");
+
+        Alarm latencyAlarm = shift.getP99LatencyAlarmMillis() != null
+                ? MeshMonitoring.createLatencyAlarm(stack, router.getName() + "-" + route.getName() + "-canary-p99-alarm",
+                        canaryNodeName, shift.getP99LatencyAlarmMillis(), shift.getAlarmEvaluationPeriods())
+                : latencyAlarms.get(shift.getCanary());
+        Alarm errorAlarm = MeshMonitoring.createServerErrorAlarm(stack,
+                router.getName() + "-" + route.getName() + "-canary-5xx-alarm",
+                canaryNodeName, shift.getMaxServerErrors(), shift.getAlarmEvaluationPeriods());
+
+        // The update call replaces the whole route spec, so it is rendered from the route itself
+        Map<String, Object> routeSpec = apiShape(stack.resolve(((CfnRoute) meshRoute.getNode().getDefaultChild()).getSpec()));
+
+        CallAwsService restore = updateRoute(scope, "rollback", topology, router, route, meshRoute, routeSpec,
+                declaredWeights(route, nodes));
+        retryCall(restore);
+        Chain rollback = Chain.start(restore)
+                .next(Fail.Builder.create(scope, "rolled-back")
+                        .error("TrafficShiftRolledBack")
+                        .cause("Alarm of canary " + shift.getCanary() + " fired, or a route update or alarm check failed")
+                        .build());
+
+        IChainable next = Succeed.Builder.create(scope, "shifted").build();
+        List<Integer> steps = shift.getSteps();
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            int percent = steps.get(i);
+            CallAwsService update = updateRoute(scope, "shift-" + percent, topology, router, route, meshRoute,
+                    routeSpec, shiftedWeights(route, nodes, percent));
+            retryCall(update);
+            update.addCatch(rollback, CatchProps.builder().resultPath(JsonPath.DISCARD).build());
+
+            CallAwsService check = CallAwsService.Builder.create(scope, "check-" + percent)
+                    .service("cloudwatch")
+                    .action("describeAlarms")
+                    .iamResources(Arrays.asList(latencyAlarm.getAlarmArn(), errorAlarm.getAlarmArn()))
+                    .parameters(Map.of(
+                            "AlarmNames", Arrays.asList(latencyAlarm.getAlarmName(), errorAlarm.getAlarmName()),
+                            "StateValue", "ALARM"
+                    ))
+                    .resultPath("$.alarms")
+                    .build();
+            retryCall(check);
+            check.addCatch(rollback, CatchProps.builder().resultPath(JsonPath.DISCARD).build());
+
+            next = update
+                    .next(Wait.Builder.create(scope, "bake-" + percent)
+                            .time(WaitTime.duration(Duration.seconds(shift.getBakeTimeSeconds())))
+                            .build())
+                    .next(check)
+                    .next(Choice.Builder.create(scope, "green-" + percent).build()
+                            .when(Condition.isPresent("$.alarms.MetricAlarms[0]"), rollback)
+                            .otherwise(next));
+        }
+
+        return StateMachine.Builder.create(scope, "controller")
+                .definition(next)
+                .build();
+    }
+
+    /**
+     * Retries a failing call, throttled ones mostly, before the execution gives up on it.
+     */
+    private static void retryCall(CallAwsService call) {
+        call.addRetry(RetryProps.builder()
+                .errors(Arrays.asList(Errors.ALL))
+                .interval(Duration.seconds(2))
+                .backoffRate(2)
+                .maxAttempts(4)
+                .build());
+    }
+
+    private static CallAwsService updateRoute(Construct scope, String id, MeshTopology topology,
+                                              VirtualRouterSpec router, MeshRouteSpec route, Route meshRoute,
+                                              Map<String, Object> routeSpec, Map<String, Integer> weights) {
+        return CallAwsService.Builder.create(scope, id)
+                .service("appmesh")
+                .action("updateRoute")
+                .iamResources(Arrays.asList(meshRoute.getRouteArn()))
+                .parameters(Map.of(
+                        "MeshName", topology.getMeshName(),
+                        "VirtualRouterName", router.getName(),
+                        "RouteName", route.getName(),
+                        "Spec", withWeights(routeSpec, weights)
+                ))
+                .resultPath(JsonPath.DISCARD)
+                .build();
+    }
+
+    private static Map<String, Integer> declaredWeights(MeshRouteSpec route, Map<String, VirtualNodeSpec> nodes) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (WeightedTargetSpec target : route.getTargets()) {
+            weights.put(nodes.get(target.getNode()).getVirtualNodeName(), target.getWeight());
+        }
+        return weights;
+    }
+
+    /**
+     * Gives the canary {@code percent} of the traffic and splits the rest over the other targets by their
+     * declared weights. Rounding leftovers go to the first weighted target so weights always sum to 100.
+     */
+    private static Map<String, Integer> shiftedWeights(MeshRouteSpec route, Map<String, VirtualNodeSpec> nodes, int percent) {
+        String canary = route.getShift().getCanary();
+        int baselineWeight = 0;
+        for (WeightedTargetSpec target : route.getTargets()) {
+            if (!target.getNode().equals(canary)) {
+                baselineWeight += target.getWeight();
+            }
+        }
+
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        String first = null;
+        int assigned = percent;
+        for (WeightedTargetSpec target : route.getTargets()) {
+            String name = nodes.get(target.getNode()).getVirtualNodeName();
+            if (target.getNode().equals(canary)) {
+                weights.put(name, percent);
+                continue;
+            }
+            int weight = (100 - percent) * target.getWeight() / baselineWeight;
+            weights.put(name, weight);
+            assigned += weight;
+            if (first == null && target.getWeight() > 0) {
+                first = name;
+            }
+        }
+        weights.put(first, weights.get(first) + 100 - assigned);
+        return weights;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> withWeights(Map<String, Object> routeSpec, Map<String, Integer> weights) {
+        List<Map<String, Object>> weightedTargets = new ArrayList<>();
+        weights.forEach((node, weight) -> weightedTargets.add(Map.of("VirtualNode", node, "Weight", weight)));
+
+        Map<String, Object> spec = new LinkedHashMap<>();
+        routeSpec.forEach((routeType, value) -> {
+            if (!(value instanceof Map)) {
+                spec.put(routeType, value);
+                return;
+            }
+            Map<String, Object> typedRoute = new LinkedHashMap<>((Map<String, Object>) value);
+            Map<String, Object> action = new LinkedHashMap<>((Map<String, Object>) typedRoute.get("Action"));
+            action.put("WeightedTargets", weightedTargets);
+            typedRoute.put("Action", action);
+            spec.put(routeType, typedRoute);
+        });
+        return spec;
+    }
+
+    /**
+     * Turns the resolved CloudFormation properties of a route, keyed in camel case, into the shape of the
+     * App Mesh API as Step Functions expects it, keyed in Pascal case.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> apiShape(Object resolved) {
+        Map<String, Object> shape = new LinkedHashMap<>();
+        ((Map<String, Object>) resolved).forEach((key, value) ->
+                shape.put(Character.toUpperCase(key.charAt(0)) + key.substring(1), apiValue(value)));
+        return shape;
+    }
+
+    private static Object apiValue(Object value) {
+        if (value instanceof Map) {
+            return apiShape(value);
+        }
+        if (value instanceof List) {
+            List<Object> values = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                values.add(apiValue(element));
+            }
+            return values;
+        }
+        return value;
+    }
+}
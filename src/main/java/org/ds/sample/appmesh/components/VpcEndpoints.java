@@ -0,0 +1,52 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.CapacityMode;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import software.amazon.awscdk.services.ec2.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * VPC endpoints for the AWS services every task talks to, so image pulls, logs and Envoy's management
+ * connection stay inside the VPC instead of going through the NAT gateways.
+ */
+public class VpcEndpoints {
+    // App Mesh has no constant in this CDK version
+    private static final InterfaceVpcEndpointAwsService APPMESH_ENVOY_MANAGEMENT =
+            new InterfaceVpcEndpointAwsService("appmesh-envoy-management");
+
+    public static Map<String, InterfaceVpcEndpoint> addEndpoints(Vpc vpc, MeshTopology topology) {
+        // Image layers are served from S3, which a free gateway endpoint covers
+        vpc.addGatewayEndpoint("s3-endpoint",
+                GatewayVpcEndpointOptions.builder()
+                        .service(GatewayVpcEndpointAwsService.S3)
+                        .build());
+
+        Map<String, IInterfaceVpcEndpointService> services = new LinkedHashMap<>();
+        services.put("ecr-api", InterfaceVpcEndpointAwsService.ECR);
+        services.put("ecr-dkr", InterfaceVpcEndpointAwsService.ECR_DOCKER);
+        services.put("logs", InterfaceVpcEndpointAwsService.CLOUDWATCH_LOGS);
+        services.put("appmesh", APPMESH_ENVOY_MANAGEMENT);
+        if (topology.getCompute().getCapacity() == CapacityMode.EC2) {
+            // The ECS agent on the instances registers them and reports task state through these
+            services.put("ecs", InterfaceVpcEndpointAwsService.ECS);
+            services.put("ecs-agent", InterfaceVpcEndpointAwsService.ECS_AGENT);
+            services.put("ecs-telemetry", InterfaceVpcEndpointAwsService.ECS_TELEMETRY);
+        }
+        if (topology.getMetrics().isEnabled()) {
+            services.put("monitoring", InterfaceVpcEndpointAwsService.CLOUDWATCH);
+        }
+        if (topology.getTracing().isEnabled()) {
+            services.put("xray", InterfaceVpcEndpointAwsService.XRAY);
+        }
+
+        Map<String, InterfaceVpcEndpoint> endpoints = new LinkedHashMap<>();
+        services.forEach((name, service) -> endpoints.put(name, vpc.addInterfaceEndpoint(name + "-endpoint",
+                InterfaceVpcEndpointOptions.builder()
+                        .service(service)
+                        .privateDnsEnabled(true)
+                        .build())));
+        return endpoints;
+    }
+}
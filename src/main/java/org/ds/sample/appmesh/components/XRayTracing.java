@@ -0,0 +1,96 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.topology.TracingSpec;
+import software.amazon.awscdk.services.ecs.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * X-Ray tracing of the mesh: an X-Ray daemon sidecar per task receiving Envoy's trace segments.
+ *
+ * Envoy samples locally and never fetches X-Ray sampling rules, so the reservoir and fixed rate reach it
+ * as a local sampling rule manifest. A short lived container writes the manifest to a volume Envoy
+ * mounts before Envoy starts.
+ */
+public class XRayTracing {
+    public static final int DAEMON_PORT = 2000;
+
+    private static final String SAMPLING_VOLUME = "xray-sampling";
+    private static final String SAMPLING_DIRECTORY = "/xray-sampling";
+    private static final String SAMPLING_MANIFEST = SAMPLING_DIRECTORY + "/rules.json";
+
+    public static Map<String, String> envoyEnvironment() {
+        return Map.of(
+                "ENABLE_ENVOY_XRAY_TRACING", "1",
+                "XRAY_DAEMON_PORT", String.valueOf(DAEMON_PORT),
+                "XRAY_SAMPLING_RULE_MANIFEST", SAMPLING_MANIFEST
+        );
+    }
+
+    /**
+     * Local sampling rules of the X-Ray SDKs, which Envoy reads too: no rule of its own, only the default.
+     */
+    public static String samplingRuleManifest(TracingSpec spec) {
+        return "{\"version\":2,\"rules\":[],"
+                + "\"default\":{\"fixed_target\":" + spec.getReservoirPerSecond() + ",\"rate\":" + spec.getFixedRate() + "}}";
+    }
+
+    /**
+     * Adds the container writing the sampling rule manifest of {@link #envoyEnvironment()} and
+     * mounts it into the Envoy container, which waits for the manifest.
+     */
+    public static ContainerDefinition addSamplingRules(TaskDefinition taskDef, TracingSpec spec,
+                                                       ContainerDefinition envoy, LogDriver logDriver) {
+        taskDef.addVolume(Volume.builder().name(SAMPLING_VOLUME).build());
+        ContainerDefinition writer = taskDef.addContainer("xray-sampling",
+                ContainerDefinitionOptions.builder()
+                        .containerName("xray-sampling")
+                        .image(ContainerImage.fromRegistry("public.ecr.aws/docker/library/busybox:stable"))
+                        .command(List.of("sh", "-c", "printf '%s' \"$SAMPLING_RULES\" > " + SAMPLING_MANIFEST))
+                        .environment(Map.of("SAMPLING_RULES", samplingRuleManifest(spec)))
+                        .essential(false)
+                        .memoryLimitMiB(32)
+                        .logging(logDriver)
+                        .build()
+        );
+        writer.addMountPoints(MountPoint.builder()
+                .sourceVolume(SAMPLING_VOLUME)
+                .containerPath(SAMPLING_DIRECTORY)
+                .readOnly(false)
+                .build());
+        envoy.addMountPoints(MountPoint.builder()
+                .sourceVolume(SAMPLING_VOLUME)
+                .containerPath(SAMPLING_DIRECTORY)
+                .readOnly(true)
+                .build());
+        envoy.addContainerDependencies(ContainerDependency.builder()
+                .container(writer)
+                .condition(ContainerDependencyCondition.SUCCESS)
+                .build());
+        return writer;
+    }
+
+    public static ContainerDefinition addDaemon(TaskDefinition taskDef, LogDriver logDriver) {
+        return taskDef.addContainer("xray-daemon",
+                ContainerDefinitionOptions.builder()
+                        .containerName("xray-daemon")
+                        .image(ContainerImage.fromRegistry("public.ecr.aws/xray/aws-xray-daemon:latest"))
+                        // Runs as the proxy user so its calls to X-Ray bypass Envoy's egress interception
+                        .user(String.valueOf(EnvoySidecar.PROXY_UID))
+                        .essential(false)
+                        .cpu(32)
+                        .memoryLimitMiB(64)
+                        .portMappings(
+                                Arrays.asList(PortMapping.builder()
+                                        .containerPort(DAEMON_PORT)
+                                        .hostPort(DAEMON_PORT)
+                                        .protocol(Protocol.UDP)
+                                        .build())
+                        )
+                        .logging(logDriver)
+                        .build()
+        );
+    }
+}
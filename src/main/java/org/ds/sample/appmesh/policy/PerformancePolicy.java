@@ -0,0 +1,251 @@
+package org.ds.sample.appmesh.policy;
+
+import software.amazon.awscdk.Annotations;
+import software.amazon.awscdk.CfnResource;
+import software.amazon.awscdk.IAspect;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.Token;
+import software.amazon.awscdk.services.appmesh.CfnRoute;
+import software.amazon.awscdk.services.appmesh.CfnVirtualGateway;
+import software.amazon.awscdk.services.appmesh.CfnVirtualNode;
+import software.amazon.awscdk.services.ecs.CfnTaskDefinition;
+import software.amazon.awscdk.services.elasticloadbalancingv2.CfnTargetGroup;
+import software.constructs.IConstruct;
+import software.constructs.Node;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Aspect linting the synthesized mesh, ECS and load balancer resources for performance anti-patterns,
+ * see {@link PolicyRule}. Each violation is reported on its resource at the level configured for the rule.
+ *
+ * Rules are configured under the {@value #CONTEXT_KEY} context key. Its {@code default} section applies
+ * everywhere. The section named by the {@value #ENVIRONMENT_CONTEXT_KEY} context key, e.g.
+ * {@code -c environment=prod}, is laid over it. A section maps rule names to off, warn or error, and may
+ * set {@code minHealthCheckIntervalSeconds}. Unconfigured rules warn.
+ */
+public class PerformancePolicy implements IAspect {
+    public static final String CONTEXT_KEY = "performancePolicy";
+    public static final String ENVIRONMENT_CONTEXT_KEY = "environment";
+    public static final String DEFAULT_SECTION = "default";
+    public static final String MIN_HEALTH_CHECK_INTERVAL_KEY = "minHealthCheckIntervalSeconds";
+
+    // The URL suffix is usually a reference, so the match stops at the region
+    private static final Pattern ECR_IMAGE = Pattern.compile("^[0-9]{12}\\.dkr\\.ecr\\.([a-z0-9-]+)\\.");
+    private static final List<String> RETRYING_ROUTE_TYPES = List.of("httpRoute", "http2Route", "grpcRoute");
+
+    private final Map<PolicyRule, RuleLevel> levels = new EnumMap<>(PolicyRule.class);
+    private int minHealthCheckIntervalSeconds = 10;
+
+    public PerformancePolicy() {
+        for (PolicyRule rule : PolicyRule.values()) {
+            levels.put(rule, RuleLevel.WARN);
+        }
+    }
+
+    /**
+     * Builds the policy of the environment selected in the context of {@code node}.
+     */
+    public static PerformancePolicy fromContext(Node node) {
+        PerformancePolicy policy = new PerformancePolicy();
+        Map<String, Object> sections = asMap(node.tryGetContext(CONTEXT_KEY));
+        if (sections == null) {
+            return policy;
+        }
+        policy.configure(asMap(sections.get(DEFAULT_SECTION)));
+        Object environment = node.tryGetContext(ENVIRONMENT_CONTEXT_KEY);
+        if (environment != null) {
+            policy.configure(asMap(sections.get(environment.toString())));
+        }
+        return policy;
+    }
+
+    public PerformancePolicy configure(Map<String, Object> section) {
+        if (section == null) {
+            return this;
+        }
+        section.forEach((key, value) -> {
+            if (key.equals(MIN_HEALTH_CHECK_INTERVAL_KEY)) {
+                minHealthCheckIntervalSeconds = seconds(key, value);
+            } else {
+                levels.put(PolicyRule.fromName(key), RuleLevel.fromName(value.toString()));
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Reads a number of seconds given as a JSON number, or as a string by {@code -c} on the command line.
+     */
+    private static int seconds(String key, Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        try {
+            return Integer.parseInt(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a whole number of seconds, not " + value, e);
+        }
+    }
+
+    public RuleLevel getLevel(PolicyRule rule) {
+        return levels.get(rule);
+    }
+
+    public int getMinHealthCheckIntervalSeconds() {
+        return minHealthCheckIntervalSeconds;
+    }
+
+    @Override
+    public void visit(IConstruct node) {
+        if (node instanceof CfnVirtualNode) {
+            CfnVirtualNode virtualNode = (CfnVirtualNode) node;
+            for (Map<String, Object> listener : list(resolve(virtualNode, virtualNode.getSpec()).get("listeners"))) {
+                checkListener(virtualNode, "Virtual node " + virtualNode.getVirtualNodeName(), listener, true);
+            }
+        } else if (node instanceof CfnVirtualGateway) {
+            CfnVirtualGateway gateway = (CfnVirtualGateway) node;
+            for (Map<String, Object> listener : list(resolve(gateway, gateway.getSpec()).get("listeners"))) {
+                checkListener(gateway, "Virtual gateway " + gateway.getVirtualGatewayName(), listener, false);
+            }
+        } else if (node instanceof CfnRoute) {
+            checkRoute((CfnRoute) node);
+        } else if (node instanceof CfnTaskDefinition) {
+            CfnTaskDefinition taskDef = (CfnTaskDefinition) node;
+            for (Object container : (List<?>) Stack.of(taskDef).resolve(taskDef.getContainerDefinitions())) {
+                checkContainer(taskDef, asMap(container));
+            }
+        } else if (node instanceof CfnTargetGroup) {
+            CfnTargetGroup targetGroup = (CfnTargetGroup) node;
+            Object interval = Stack.of(targetGroup).resolve(targetGroup.getHealthCheckIntervalSeconds());
+            if (interval instanceof Number && ((Number) interval).intValue() < minHealthCheckIntervalSeconds) {
+                report(targetGroup, PolicyRule.HEALTH_CHECK_INTERVAL, "Target group health check runs every "
+                        + interval + "s, more often than every " + minHealthCheckIntervalSeconds + "s");
+            }
+        }
+    }
+
+    private void checkListener(CfnResource resource, String owner, Map<String, Object> listener, boolean timeouts) {
+        String port = String.valueOf(asMap(listener.get("portMapping")).get("port"));
+        if (listener.get("connectionPool") == null) {
+            report(resource, PolicyRule.LISTENER_CONNECTION_POOL, owner + " listener on port " + port
+                    + " has no connection pool");
+        }
+        if (timeouts && listener.get("timeout") == null) {
+            report(resource, PolicyRule.LISTENER_TIMEOUT, owner + " listener on port " + port + " has no timeouts");
+        }
+        Map<String, Object> healthCheck = asMap(listener.get("healthCheck"));
+        if (healthCheck != null && ((Number) healthCheck.get("intervalMillis")).intValue()
+                < minHealthCheckIntervalSeconds * 1000) {
+            report(resource, PolicyRule.HEALTH_CHECK_INTERVAL, owner + " listener on port " + port
+                    + " is health checked by every Envoy every " + healthCheck.get("intervalMillis")
+                    + "ms, more often than every " + minHealthCheckIntervalSeconds + "s");
+        }
+    }
+
+    private void checkRoute(CfnRoute route) {
+        Map<String, Object> spec = resolve(route, route.getSpec());
+        for (String routeType : RETRYING_ROUTE_TYPES) {
+            Map<String, Object> typedRoute = asMap(spec.get(routeType));
+            if (typedRoute != null && typedRoute.get("retryPolicy") == null) {
+                report(route, PolicyRule.ROUTE_RETRY_POLICY, "Route " + route.getRouteName() + " has no retry policy");
+            }
+        }
+    }
+
+    private void checkContainer(CfnTaskDefinition taskDef, Map<String, Object> container) {
+        String name = "Container " + container.get("name") + " of task " + taskDef.getFamily();
+
+        for (Map<String, Object> variable : list(container.get("environment"))) {
+            if ("ENVOY_LOG_LEVEL".equals(variable.get("name"))
+                    && ("debug".equals(variable.get("value")) || "trace".equals(variable.get("value")))) {
+                report(taskDef, PolicyRule.ENVOY_DEBUG_LOGGING, name + " logs Envoy at " + variable.get("value") + " level");
+            }
+        }
+
+        Map<String, Object> healthCheck = asMap(container.get("healthCheck"));
+        // ECS checks every 30s unless told otherwise
+        int interval = healthCheck == null ? Integer.MAX_VALUE
+                : healthCheck.get("interval") != null ? ((Number) healthCheck.get("interval")).intValue() : 30;
+        if (interval < minHealthCheckIntervalSeconds) {
+            report(taskDef, PolicyRule.HEALTH_CHECK_INTERVAL, name + " runs its health check command every " + interval
+                    + "s, more often than every " + minHealthCheckIntervalSeconds + "s");
+        }
+
+        boolean tcp = false;
+        for (Map<String, Object> portMapping : list(container.get("portMappings"))) {
+            tcp |= !"udp".equals(portMapping.get("protocol"));
+        }
+        if (tcp) {
+            boolean nofile = false;
+            for (Map<String, Object> ulimit : list(container.get("ulimits"))) {
+                nofile |= "nofile".equals(ulimit.get("name"));
+            }
+            if (!nofile) {
+                report(taskDef, PolicyRule.NOFILE_ULIMIT, name + " serves TCP ports without a nofile ulimit");
+            }
+        }
+
+        String region = Stack.of(taskDef).getRegion();
+        Matcher image = ECR_IMAGE.matcher(literal(container.get("image")));
+        if (image.find() && (Token.isUnresolved(region) || !image.group(1).equals(region))) {
+            report(taskDef, PolicyRule.CROSS_REGION_IMAGE, name + " pulls its image from " + image.group(1)
+                    + (Token.isUnresolved(region) ? " whatever the stack's region" : " into " + region));
+        }
+    }
+
+    private void report(CfnResource resource, PolicyRule rule, String message) {
+        String annotation = "[" + rule.getRuleName() + "] " + message;
+        switch (levels.get(rule)) {
+            case ERROR:
+                Annotations.of(resource).addError(annotation);
+                break;
+            case WARN:
+                Annotations.of(resource).addWarning(annotation);
+                break;
+            case OFF:
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Renders a resolved value as a string, the literal parts of {@code Fn::Join} kept and anything
+     * else replaced by a placeholder, so a region given by reference never matches a literal one.
+     */
+    private static String literal(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        Map<String, Object> intrinsic = asMap(value);
+        if (intrinsic != null && intrinsic.get("Fn::Join") != null) {
+            List<?> join = (List<?>) intrinsic.get("Fn::Join");
+            List<?> parts = (List<?>) join.get(1);
+            StringBuilder joined = new StringBuilder();
+            for (int i = 0; i < parts.size(); i++) {
+                joined.append(i > 0 ? join.get(0) : "").append(literal(parts.get(i)));
+            }
+            return joined.toString();
+        }
+        return "${token}";
+    }
+
+    private static Map<String, Object> resolve(CfnResource resource, Object value) {
+        return asMap(Stack.of(resource).resolve(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> list(Object value) {
+        return value != null ? (List<Map<String, Object>>) value : Collections.emptyList();
+    }
+}
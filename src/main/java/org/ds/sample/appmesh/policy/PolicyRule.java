@@ -0,0 +1,55 @@
+package org.ds.sample.appmesh.policy;
+
+/**
+ * Performance anti-patterns checked by {@link PerformancePolicy}, named as in the policy configuration.
+ */
+public enum PolicyRule {
+    /**
+     * Envoy logging at debug or trace level, which writes several lines per request.
+     */
+    ENVOY_DEBUG_LOGGING("envoy-debug-logging"),
+    /**
+     * Virtual node or gateway listeners without a connection pool, letting a slow upstream queue
+     * unbounded requests.
+     */
+    LISTENER_CONNECTION_POOL("listener-connection-pool"),
+    /**
+     * Virtual node listeners without timeouts, so Envoy's 15s default holds stuck requests.
+     */
+    LISTENER_TIMEOUT("listener-timeout"),
+    /**
+     * HTTP, HTTP/2 and gRPC routes without a retry policy, failing requests on any transient error.
+     */
+    ROUTE_RETRY_POLICY("route-retry-policy"),
+    /**
+     * Health checks running more often than the policy's minimum interval.
+     */
+    HEALTH_CHECK_INTERVAL("health-check-interval"),
+    /**
+     * Containers serving TCP ports without a nofile ulimit, which caps their open connections.
+     */
+    NOFILE_ULIMIT("nofile-ulimit"),
+    /**
+     * Container images pulled from an ECR registry of another region than the stack's.
+     */
+    CROSS_REGION_IMAGE("cross-region-image");
+
+    private final String ruleName;
+
+    PolicyRule(String ruleName) {
+        this.ruleName = ruleName;
+    }
+
+    public String getRuleName() {
+        return ruleName;
+    }
+
+    public static PolicyRule fromName(String name) {
+        for (PolicyRule rule : values()) {
+            if (rule.ruleName.equalsIgnoreCase(name) || rule.name().equalsIgnoreCase(name)) {
+                return rule;
+            }
+        }
+        throw new IllegalArgumentException("Unknown performance policy rule " + name);
+    }
+}
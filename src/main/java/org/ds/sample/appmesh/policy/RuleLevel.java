@@ -0,0 +1,25 @@
+package org.ds.sample.appmesh.policy;
+
+/**
+ * What a {@link PolicyRule} violation does to synthesis.
+ */
+public enum RuleLevel {
+    OFF,
+    /**
+     * Reported as a warning, synthesis goes on.
+     */
+    WARN,
+    /**
+     * Reported as an error, failing {@code cdk synth} and {@code cdk deploy}.
+     */
+    ERROR;
+
+    public static RuleLevel fromName(String name) {
+        for (RuleLevel level : values()) {
+            if (level.name().equalsIgnoreCase(name)) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("Unknown rule level " + name + ", expected off, warn or error");
+    }
+}
@@ -0,0 +1,9 @@
+package org.ds.sample.appmesh.topology;
+
+/**
+ * Instance resource EC2 placement packs tasks on.
+ */
+public enum BinpackResource {
+    CPU,
+    MEMORY
+}
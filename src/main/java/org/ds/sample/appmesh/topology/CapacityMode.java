@@ -0,0 +1,16 @@
+package org.ds.sample.appmesh.topology;
+
+/**
+ * Capacity the mesh tasks are placed on.
+ */
+public enum CapacityMode {
+    /**
+     * Fargate and Fargate Spot capacity providers, weighted by the compute settings.
+     */
+    FARGATE,
+    /**
+     * An auto scaling group of ECS optimized instances managed by a capacity provider, tasks being
+     * binpacked onto as few instances as possible.
+     */
+    EC2
+}
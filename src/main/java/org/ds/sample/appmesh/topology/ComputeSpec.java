@@ -0,0 +1,81 @@
+package org.ds.sample.appmesh.topology;
+
+/**
+ * Capacity providers, placement and CPU architecture of the tasks running the mesh.
+ */
+public class ComputeSpec {
+    private CapacityMode capacity = CapacityMode.FARGATE;
+    private CpuArchitecture cpuArchitecture = CpuArchitecture.X86_64;
+    private int fargateBase;
+    private int fargateWeight = 1;
+    private int fargateSpotWeight;
+    private String instanceType;
+    private int minInstances = 1;
+    private int maxInstances = 4;
+    private int targetCapacityPercent = 100;
+    private BinpackResource binpack = BinpackResource.MEMORY;
+
+    /**
+     * Fargate, or EC2 instances on which every awsvpc task takes an ENI. ENI trunking is enabled for the
+     * instances, but only instance types that support it get more ENIs than their plain limit.
+     */
+    public CapacityMode getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Architecture of every task that does not set its own.
+     */
+    public CpuArchitecture getCpuArchitecture() {
+        return cpuArchitecture;
+    }
+
+    /**
+     * Tasks of each service always placed on regular Fargate before weights apply.
+     */
+    public int getFargateBase() {
+        return fargateBase;
+    }
+
+    public int getFargateWeight() {
+        return fargateWeight;
+    }
+
+    /**
+     * Share of tasks placed on Fargate Spot relative to the Fargate weight, 0 to not use Spot. Spot has
+     * no arm64 capacity, so this must be 0 when virtual node tasks run on arm64.
+     */
+    public int getFargateSpotWeight() {
+        return fargateSpotWeight;
+    }
+
+    /**
+     * Instance type of the EC2 capacity, defaults to c6g.large on arm64 and c5.large on x86_64, both of
+     * which support ENI trunking.
+     */
+    public String getInstanceType() {
+        if (instanceType != null) {
+            return instanceType;
+        }
+        return cpuArchitecture == CpuArchitecture.ARM64 ? "c6g.large" : "c5.large";
+    }
+
+    public int getMinInstances() {
+        return minInstances;
+    }
+
+    public int getMaxInstances() {
+        return maxInstances;
+    }
+
+    /**
+     * Utilization of the instances managed scaling aims for, lower values keep spare room for new tasks.
+     */
+    public int getTargetCapacityPercent() {
+        return targetCapacityPercent;
+    }
+
+    public BinpackResource getBinpack() {
+        return binpack;
+    }
+}
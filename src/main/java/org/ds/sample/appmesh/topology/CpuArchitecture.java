@@ -0,0 +1,13 @@
+package org.ds.sample.appmesh.topology;
+
+/**
+ * CPU architecture of the tasks. The App Mesh Envoy, CloudWatch agent and X-Ray daemon images are
+ * published for both, application images have to be built for the chosen one.
+ */
+public enum CpuArchitecture {
+    X86_64,
+    /**
+     * Graviton.
+     */
+    ARM64
+}
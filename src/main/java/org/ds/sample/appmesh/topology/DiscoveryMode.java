@@ -0,0 +1,40 @@
+package org.ds.sample.appmesh.topology;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * How Envoy finds the endpoints of virtual nodes.
+ */
+public enum DiscoveryMode {
+    /**
+     * Envoy resolves the node's host name in the service domain and follows the record TTL.
+     */
+    DNS("dns"),
+    /**
+     * Envoy reads the instances of the node's Cloud Map service from the App Mesh control plane,
+     * optionally filtered on instance attributes.
+     */
+    CLOUD_MAP("cloud-map");
+
+    private final String modeName;
+
+    DiscoveryMode(String modeName) {
+        this.modeName = modeName;
+    }
+
+    @JsonValue
+    public String getModeName() {
+        return modeName;
+    }
+
+    @JsonCreator
+    public static DiscoveryMode fromName(String name) {
+        for (DiscoveryMode mode : values()) {
+            if (mode.modeName.equalsIgnoreCase(name) || mode.name().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown discovery mode " + name);
+    }
+}
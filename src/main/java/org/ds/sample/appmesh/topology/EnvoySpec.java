@@ -0,0 +1,67 @@
+package org.ds.sample.appmesh.topology;
+
+/**
+ * Tuning of the Envoy proxy sidecar. Unset optional values keep the App Mesh Envoy image defaults.
+ */
+public class EnvoySpec {
+    /**
+     * First App Mesh Envoy release reading ENVOY_CONCURRENCY.
+     */
+    public static final String MIN_CONCURRENCY_VERSION = "v1.24.0.0-prod";
+    /**
+     * Bounds ECS puts on a container health check interval, in seconds.
+     */
+    public static final int MIN_HEALTH_CHECK_INTERVAL_SECONDS = 5;
+    public static final int MAX_HEALTH_CHECK_INTERVAL_SECONDS = 300;
+
+    private String imageTag = MIN_CONCURRENCY_VERSION;
+    private String logLevel = "info";
+    private Integer concurrency;
+    private Integer cpu;
+    private int memoryReservationMiB = 128;
+    private int memoryLimitMiB = 512;
+    private int noFileLimit = 65535;
+    private int healthCheckIntervalSeconds = 10;
+
+    public String getImageTag() {
+        return imageTag;
+    }
+
+    public String getLogLevel() {
+        return logLevel;
+    }
+
+    /**
+     * Envoy worker threads, best matched to the vCPUs of the task rather than those of the host. Needs
+     * an image of {@value #MIN_CONCURRENCY_VERSION} or later.
+     */
+    public Integer getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * CPU units reserved for Envoy, null to share the task CPU with the application.
+     */
+    public Integer getCpu() {
+        return cpu;
+    }
+
+    public int getMemoryReservationMiB() {
+        return memoryReservationMiB;
+    }
+
+    public int getMemoryLimitMiB() {
+        return memoryLimitMiB;
+    }
+
+    public int getNoFileLimit() {
+        return noFileLimit;
+    }
+
+    /**
+     * Interval of the container health check ECS runs against Envoy's admin endpoint.
+     */
+    public int getHealthCheckIntervalSeconds() {
+        return healthCheckIntervalSeconds;
+    }
+}
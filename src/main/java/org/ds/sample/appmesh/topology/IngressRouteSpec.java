@@ -0,0 +1,25 @@
+package org.ds.sample.appmesh.topology;
+
+/**
+ * Gateway route sending requests under a path prefix to a virtual service.
+ */
+public class IngressRouteSpec {
+    private String name;
+    private String prefix = "/";
+    private String service;
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Name of the virtual service receiving the requests.
+     */
+    public String getService() {
+        return service;
+    }
+}
@@ -0,0 +1,133 @@
+package org.ds.sample.appmesh.topology;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Virtual gateway running on ECS behind a network load balancer, routing requests into the mesh.
+ */
+public class IngressSpec {
+    private boolean enabled;
+    private String name = "ingress";
+    private ListenerProtocol protocol = ListenerProtocol.HTTP;
+    private int port = 9080;
+    private int loadBalancerPort = 80;
+    private boolean internetFacing = true;
+    private boolean crossZone = true;
+    private int deregistrationDelaySeconds = 30;
+    private PerformanceProfile profile = PerformanceProfile.HIGH_THROUGHPUT;
+    private Integer maxConnections;
+    private Integer maxPendingRequests;
+    private Integer maxRequests;
+    private int desiredCount = 2;
+    private String cpu = "512";
+    private String memoryMiB = "1024";
+    private EnvoySpec envoy;
+    private CpuArchitecture cpuArchitecture;
+    private List<IngressRouteSpec> routes = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getVirtualGatewayName() {
+        return name + "-vg";
+    }
+
+    /**
+     * Protocol of the gateway listener, http or http2.
+     */
+    public ListenerProtocol getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Port Envoy listens on in the gateway tasks.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    public int getLoadBalancerPort() {
+        return loadBalancerPort;
+    }
+
+    public boolean isInternetFacing() {
+        return internetFacing;
+    }
+
+    public boolean isCrossZone() {
+        return crossZone;
+    }
+
+    /**
+     * Time the load balancer keeps existing connections to a draining gateway task. ECS waits for it
+     * before stopping Envoy, so it is the time connections have to finish.
+     */
+    public int getDeregistrationDelaySeconds() {
+        return deregistrationDelaySeconds;
+    }
+
+    /**
+     * Profile the listener connection pool defaults come from.
+     */
+    public PerformanceProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Overrides the profile's http connection limit.
+     */
+    public Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Overrides the profile's http pending request limit.
+     */
+    public Integer getMaxPendingRequests() {
+        return maxPendingRequests;
+    }
+
+    /**
+     * Overrides the profile's http2 concurrent request limit.
+     */
+    public Integer getMaxRequests() {
+        return maxRequests;
+    }
+
+    public int getDesiredCount() {
+        return desiredCount;
+    }
+
+    public String getCpu() {
+        return cpu;
+    }
+
+    public String getMemoryMiB() {
+        return memoryMiB;
+    }
+
+    /**
+     * Envoy settings of the gateway tasks, the topology's when null.
+     */
+    public EnvoySpec getEnvoy() {
+        return envoy;
+    }
+
+    /**
+     * Architecture of the gateway tasks, null for the one of the topology's compute settings. Gateway
+     * tasks only run Envoy and its sidecars, so they can move to arm64 ahead of the applications.
+     */
+    public CpuArchitecture getCpuArchitecture() {
+        return cpuArchitecture;
+    }
+
+    public List<IngressRouteSpec> getRoutes() {
+        return routes;
+    }
+}
@@ -0,0 +1,8 @@
+package org.ds.sample.appmesh.topology;
+
+public enum ListenerProtocol {
+    HTTP,
+    HTTP2,
+    GRPC,
+    TCP
+}
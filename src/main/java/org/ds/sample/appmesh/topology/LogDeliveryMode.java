@@ -0,0 +1,41 @@
+package org.ds.sample.appmesh.topology;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Delivery mode of the awslogs driver.
+ */
+public enum LogDeliveryMode {
+    /**
+     * Writes to stdout and stderr wait for the driver, so a throttled CloudWatch Logs stalls the
+     * container. No log line is lost.
+     */
+    BLOCKING("blocking"),
+    /**
+     * Writes go to an in-memory buffer drained by the driver. Once the buffer is full, new lines are
+     * dropped instead of blocking the container.
+     */
+    NON_BLOCKING("non-blocking");
+
+    private final String modeName;
+
+    LogDeliveryMode(String modeName) {
+        this.modeName = modeName;
+    }
+
+    @JsonValue
+    public String getModeName() {
+        return modeName;
+    }
+
+    @JsonCreator
+    public static LogDeliveryMode fromName(String name) {
+        for (LogDeliveryMode mode : values()) {
+            if (mode.modeName.equalsIgnoreCase(name) || mode.name().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown log delivery mode " + name);
+    }
+}
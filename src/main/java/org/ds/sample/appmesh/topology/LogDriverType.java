@@ -0,0 +1,16 @@
+package org.ds.sample.appmesh.topology;
+
+/**
+ * How task containers ship their output to CloudWatch Logs.
+ */
+public enum LogDriverType {
+    /**
+     * The awslogs Docker driver of each container calls CloudWatch Logs itself.
+     */
+    AWSLOGS,
+    /**
+     * Containers write to a Fluent Bit log router sidecar, which buffers their output in memory and
+     * sends it to CloudWatch Logs in batches.
+     */
+    FIRELENS
+}
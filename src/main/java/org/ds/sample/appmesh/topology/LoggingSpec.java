@@ -0,0 +1,50 @@
+package org.ds.sample.appmesh.topology;
+
+import java.util.Set;
+
+/**
+ * Log delivery of the task containers and the log groups receiving it.
+ */
+public class LoggingSpec {
+    /**
+     * Retention periods, in days, accepted by CloudWatch Logs.
+     */
+    public static final Set<Integer> RETENTION_DAYS =
+            Set.of(1, 3, 5, 7, 14, 30, 60, 90, 120, 150, 180, 365, 400, 545, 731, 1827, 3653);
+
+    private LogDriverType driver = LogDriverType.AWSLOGS;
+    private LogDeliveryMode mode = LogDeliveryMode.BLOCKING;
+    private String maxBufferSize;
+    private int retentionDays = 14;
+    private boolean groupPerService;
+
+    public LogDriverType getDriver() {
+        return driver;
+    }
+
+    /**
+     * Mode of the awslogs drivers, those of the FireLens log routers included.
+     */
+    public LogDeliveryMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Buffer of a non-blocking awslogs driver in Docker's size format, e.g. {@code 25m}, null for
+     * Docker's 1m default.
+     */
+    public String getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    /**
+     * Gives every service its own log group instead of one shared by all tasks.
+     */
+    public boolean isGroupPerService() {
+        return groupPerService;
+    }
+}
@@ -0,0 +1,67 @@
+package org.ds.sample.appmesh.topology;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MeshRouteSpec {
+    private String name;
+    private String id;
+    private String prefix = "/";
+    private String grpcServiceName;
+    private String grpcMethodName;
+    private List<WeightedTargetSpec> targets = new ArrayList<>();
+    private RetrySpec retry;
+    private TimeoutSpec timeout;
+    private TrafficShiftSpec shift;
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Construct id of the route, null to derive one from the router and route names.
+     */
+    public String getId() {
+        return id;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Fully qualified gRPC service matched by routes of grpc routers, which App Mesh requires.
+     */
+    public String getGrpcServiceName() {
+        return grpcServiceName;
+    }
+
+    /**
+     * gRPC method matched within the service, null to match every method of the service.
+     */
+    public String getGrpcMethodName() {
+        return grpcMethodName;
+    }
+
+    public List<WeightedTargetSpec> getTargets() {
+        return targets;
+    }
+
+    /**
+     * Retry policy, not available on tcp routes.
+     */
+    public RetrySpec getRetry() {
+        return retry;
+    }
+
+    public TimeoutSpec getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Progressive traffic shift onto one of the targets, null for static weights.
+     */
+    public TrafficShiftSpec getShift() {
+        return shift;
+    }
+}
@@ -0,0 +1,417 @@
+package org.ds.sample.appmesh.topology;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Declarative description of the mesh: virtual nodes, routers with their routes and the virtual
+ * services fronting them. Loaded by {@link TopologyLoader} and turned into constructs by
+ * {@link org.ds.sample.appmesh.components.MeshTopologyFactory}.
+ */
+public class MeshTopology {
+    private static final Pattern ENVOY_IMAGE_VERSION = Pattern.compile("v(\\d+)\\.(\\d+)\\.(\\d+)\\.(\\d+)-prod");
+
+    private String meshName = "colorsMesh";
+    private String serviceDomain = "colors.local";
+    private DiscoveryMode discovery = DiscoveryMode.DNS;
+    private EnvoySpec envoy = new EnvoySpec();
+    private MetricsSpec metrics = new MetricsSpec();
+    private TracingSpec tracing = new TracingSpec();
+    private IngressSpec ingress = new IngressSpec();
+    private ComputeSpec compute = new ComputeSpec();
+    private NetworkSpec network = new NetworkSpec();
+    private LoggingSpec logging = new LoggingSpec();
+    private List<VirtualNodeSpec> virtualNodes = new ArrayList<>();
+    private List<VirtualRouterSpec> virtualRouters = new ArrayList<>();
+    private List<VirtualServiceSpec> virtualServices = new ArrayList<>();
+
+    public String getMeshName() {
+        return meshName;
+    }
+
+    public String getServiceDomain() {
+        return serviceDomain;
+    }
+
+    public DiscoveryMode getDiscovery() {
+        return discovery;
+    }
+
+    /**
+     * Envoy settings of every task that does not override them.
+     */
+    public EnvoySpec getEnvoy() {
+        return envoy;
+    }
+
+    public MetricsSpec getMetrics() {
+        return metrics;
+    }
+
+    public TracingSpec getTracing() {
+        return tracing;
+    }
+
+    public IngressSpec getIngress() {
+        return ingress;
+    }
+
+    public ComputeSpec getCompute() {
+        return compute;
+    }
+
+    public NetworkSpec getNetwork() {
+        return network;
+    }
+
+    public LoggingSpec getLogging() {
+        return logging;
+    }
+
+    public List<VirtualNodeSpec> getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public List<VirtualRouterSpec> getVirtualRouters() {
+        return virtualRouters;
+    }
+
+    public List<VirtualServiceSpec> getVirtualServices() {
+        return virtualServices;
+    }
+
+    /**
+     * Checks names are unique and every reference resolves, so mistakes surface before any construct
+     * is created. Runs in time linear in the size of the topology.
+     */
+    public void validate() {
+        if (metrics.getNodesPerDashboard() < 1) {
+            throw new IllegalArgumentException("nodesPerDashboard must be at least 1");
+        }
+        if (tracing.getFixedRate() < 0 || tracing.getFixedRate() > 1 || tracing.getReservoirPerSecond() < 0) {
+            throw new IllegalArgumentException("Tracing needs a fixedRate between 0 and 1 and a reservoirPerSecond of at least 0");
+        }
+
+        validateCompute();
+        validateNetwork();
+        validateLogging();
+        validateEnvoy("The mesh", envoy);
+        validateEnvoy("Ingress " + ingress.getName(), ingress.getEnvoy());
+
+        Set<String> nodes = new HashSet<>();
+        for (VirtualNodeSpec node : virtualNodes) {
+            requireName("virtual node", node.getName());
+            requireUnique(nodes, "virtual node", node.getName());
+        }
+
+        Set<String> discoveryServices = new HashSet<>();
+        for (VirtualNodeSpec node : virtualNodes) {
+            if (node.getDiscoveryService().equals(node.getName())) {
+                discoveryServices.add(node.getName());
+            }
+        }
+        for (VirtualNodeSpec node : virtualNodes) {
+            validateDiscovery(discoveryServices, node);
+        }
+
+        Set<String> routers = new HashSet<>();
+        for (VirtualRouterSpec router : virtualRouters) {
+            requireName("virtual router", router.getName());
+            requireUnique(routers, "virtual router", router.getName());
+            Set<String> routes = new HashSet<>();
+            for (MeshRouteSpec route : router.getRoutes()) {
+                requireName("route", route.getName());
+                requireUnique(routes, "route in " + router.getName(), route.getName());
+                if (route.getTargets().isEmpty()) {
+                    throw new IllegalArgumentException("Route " + route.getName() + " has no targets");
+                }
+                int totalWeight = 0;
+                for (WeightedTargetSpec target : route.getTargets()) {
+                    requireReference(nodes, "Route " + route.getName(), "virtual node", target.getNode());
+                    if (target.getWeight() < 0 || target.getWeight() > 100) {
+                        throw new IllegalArgumentException("Route " + route.getName() + " weights must be between 0 and 100");
+                    }
+                    totalWeight += target.getWeight();
+                }
+                if (totalWeight == 0) {
+                    throw new IllegalArgumentException("Route " + route.getName() + " needs a target with a weight");
+                }
+                if ((router.getProtocol() == ListenerProtocol.HTTP || router.getProtocol() == ListenerProtocol.HTTP2)
+                        && (route.getPrefix() == null || !route.getPrefix().startsWith("/"))) {
+                    throw new IllegalArgumentException("Route " + route.getName() + " prefix must start with /");
+                }
+                validateGrpcMatch(router, route);
+                validateRetry(router, route);
+                validateShift(route);
+            }
+        }
+
+        Set<String> services = new HashSet<>();
+        for (VirtualServiceSpec service : virtualServices) {
+            requireName("virtual service", service.getName());
+            requireUnique(services, "virtual service", service.getName());
+            if ((service.getRouter() == null) == (service.getNode() == null)) {
+                throw new IllegalArgumentException(
+                        "Virtual service " + service.getName() + " needs exactly one of router or node");
+            }
+            if (service.getRouter() != null) {
+                requireReference(routers, "Virtual service " + service.getName(), "virtual router", service.getRouter());
+            } else {
+                requireReference(nodes, "Virtual service " + service.getName(), "virtual node", service.getNode());
+            }
+        }
+
+        for (VirtualNodeSpec node : virtualNodes) {
+            ScalingSpec scaling = node.getTask() != null ? node.getTask().getScaling() : null;
+            if (scaling != null && (scaling.getMinCapacity() < 0 || scaling.getMaxCapacity() < scaling.getMinCapacity())) {
+                throw new IllegalArgumentException("Virtual node " + node.getName() + " needs 0 <= minCapacity <= maxCapacity");
+            }
+            if (node.isHealthCheck() && (node.getHealthCheckIntervalMillis() < VirtualNodeSpec.MIN_HEALTH_CHECK_INTERVAL_MILLIS
+                    || node.getHealthCheckIntervalMillis() > VirtualNodeSpec.MAX_HEALTH_CHECK_INTERVAL_MILLIS)) {
+                throw new IllegalArgumentException("Virtual node " + node.getName() + " healthCheckIntervalMillis must be between "
+                        + VirtualNodeSpec.MIN_HEALTH_CHECK_INTERVAL_MILLIS + " and " + VirtualNodeSpec.MAX_HEALTH_CHECK_INTERVAL_MILLIS);
+            }
+            validateEnvoy("Virtual node " + node.getName(), node.getTask() != null ? node.getTask().getEnvoy() : null);
+            CpuArchitecture architecture = node.getTask() != null ? node.getTask().getCpuArchitecture() : null;
+            if (architecture != null && compute.getCapacity() == CapacityMode.EC2
+                    && architecture != compute.getCpuArchitecture()) {
+                throw new IllegalArgumentException("Virtual node " + node.getName()
+                        + " runs on " + architecture + ", unlike the EC2 capacity");
+            }
+            for (String backend : node.getBackends()) {
+                requireReference(services, "Virtual node " + node.getName(), "virtual service", backend);
+            }
+        }
+
+        if (ingress.isEnabled()) {
+            validateIngress(services);
+        }
+    }
+
+    private void validateIngress(Set<String> services) {
+        if (ingress.getProtocol() != ListenerProtocol.HTTP && ingress.getProtocol() != ListenerProtocol.HTTP2) {
+            throw new IllegalArgumentException("Ingress listener must be http or http2");
+        }
+        // The gateway's task definition, service and log group are named like those of virtual node tasks
+        for (VirtualNodeSpec node : virtualNodes) {
+            if (node.getTask() != null && node.getName().equals(ingress.getName())) {
+                throw new IllegalArgumentException("Ingress " + ingress.getName()
+                        + " is named like a virtual node with a task");
+            }
+        }
+        if (ingress.getDeregistrationDelaySeconds() < 0 || ingress.getDeregistrationDelaySeconds() > 3600) {
+            throw new IllegalArgumentException("Ingress deregistrationDelaySeconds must be between 0 and 3600");
+        }
+        if (ingress.getRoutes().isEmpty()) {
+            throw new IllegalArgumentException("Ingress " + ingress.getName() + " has no routes");
+        }
+        Set<String> routes = new HashSet<>();
+        for (IngressRouteSpec route : ingress.getRoutes()) {
+            requireName("ingress route", route.getName());
+            requireUnique(routes, "ingress route", route.getName());
+            if (route.getPrefix() == null || !route.getPrefix().startsWith("/")) {
+                throw new IllegalArgumentException("Ingress route " + route.getName() + " prefix must start with /");
+            }
+            requireReference(services, "Ingress route " + route.getName(), "virtual service", route.getService());
+        }
+    }
+
+    private void validateCompute() {
+        if (compute.getFargateBase() < 0 || compute.getFargateWeight() < 0 || compute.getFargateSpotWeight() < 0
+                || compute.getFargateWeight() + compute.getFargateSpotWeight() == 0) {
+            throw new IllegalArgumentException("Fargate base and weights cannot be negative, and one weight must be positive");
+        }
+        if (compute.getMinInstances() < 0 || compute.getMaxInstances() < Math.max(1, compute.getMinInstances())) {
+            throw new IllegalArgumentException("EC2 capacity needs 0 <= minInstances <= maxInstances and maxInstances >= 1");
+        }
+        if (compute.getTargetCapacityPercent() < 1 || compute.getTargetCapacityPercent() > 100) {
+            throw new IllegalArgumentException("targetCapacityPercent must be between 1 and 100");
+        }
+        if (compute.getCapacity() == CapacityMode.FARGATE && compute.getFargateSpotWeight() > 0) {
+            // The gateway runs without capacity providers, so only the tasks of virtual nodes land on Spot
+            boolean arm64 = false;
+            for (VirtualNodeSpec node : virtualNodes) {
+                CpuArchitecture architecture = node.getTask() != null ? node.getTask().getCpuArchitecture() : null;
+                arm64 |= node.getTask() != null
+                        && (architecture != null ? architecture : compute.getCpuArchitecture()) == CpuArchitecture.ARM64;
+            }
+            if (arm64) {
+                throw new IllegalArgumentException("Fargate Spot does not run arm64 tasks, so arm64 virtual node "
+                        + "tasks need a fargateSpotWeight of 0");
+            }
+        }
+    }
+
+    private void validateNetwork() {
+        if (network.getMaxAzs() < 1 || (network.getNatGateways() != null && network.getNatGateways() < 0)) {
+            throw new IllegalArgumentException("The network needs at least one AZ and no negative NAT gateway count");
+        }
+        if (network.getNatGateways() != null && network.getNatGateways() == 0) {
+            // The CloudWatch agent, X-Ray daemon and Fluent Bit images come from the public ECR gallery
+            boolean publicImages = metrics.isEnabled() || tracing.isEnabled()
+                    || logging.getDriver() == LogDriverType.FIRELENS;
+            for (VirtualNodeSpec node : virtualNodes) {
+                publicImages |= node.getTask() != null && node.getTask().isScalingOnRequests();
+            }
+            if (!network.isVpcEndpoints() || publicImages) {
+                throw new IllegalArgumentException("A network without NAT gateways needs vpcEndpoints, and no "
+                        + "metrics, tracing, FireLens or scaling on requests");
+            }
+        }
+    }
+
+    private void validateLogging() {
+        if (!LoggingSpec.RETENTION_DAYS.contains(logging.getRetentionDays())) {
+            throw new IllegalArgumentException("Log retention of " + logging.getRetentionDays()
+                    + " days is not one CloudWatch Logs accepts");
+        }
+        if (logging.getMaxBufferSize() != null && (logging.getMode() != LogDeliveryMode.NON_BLOCKING
+                || !logging.getMaxBufferSize().matches("[0-9]+[kmg]?"))) {
+            throw new IllegalArgumentException("maxBufferSize needs the non-blocking mode and a size such as 25m");
+        }
+        for (VirtualNodeSpec node : virtualNodes) {
+            Integer retentionDays = node.getTask() != null ? node.getTask().getLogRetentionDays() : null;
+            if (retentionDays != null && !LoggingSpec.RETENTION_DAYS.contains(retentionDays)) {
+                throw new IllegalArgumentException("Log retention of " + retentionDays + " days of virtual node "
+                        + node.getName() + " is not one CloudWatch Logs accepts");
+            }
+        }
+    }
+
+    private static void validateEnvoy(String owner, EnvoySpec spec) {
+        if (spec == null) {
+            return;
+        }
+        if (spec.getHealthCheckIntervalSeconds() < EnvoySpec.MIN_HEALTH_CHECK_INTERVAL_SECONDS
+                || spec.getHealthCheckIntervalSeconds() > EnvoySpec.MAX_HEALTH_CHECK_INTERVAL_SECONDS) {
+            throw new IllegalArgumentException(owner + " Envoy healthCheckIntervalSeconds must be between "
+                    + EnvoySpec.MIN_HEALTH_CHECK_INTERVAL_SECONDS + " and " + EnvoySpec.MAX_HEALTH_CHECK_INTERVAL_SECONDS);
+        }
+        if (spec.getConcurrency() == null) {
+            return;
+        }
+        // Tags of other forms, such as custom builds, are taken on trust
+        Matcher version = ENVOY_IMAGE_VERSION.matcher(spec.getImageTag());
+        Matcher minimum = ENVOY_IMAGE_VERSION.matcher(EnvoySpec.MIN_CONCURRENCY_VERSION);
+        if (version.matches() && minimum.matches()) {
+            for (int i = 1; i <= 4; i++) {
+                int difference = Integer.parseInt(version.group(i)) - Integer.parseInt(minimum.group(i));
+                if (difference > 0) {
+                    return;
+                }
+                if (difference < 0) {
+                    throw new IllegalArgumentException(owner + " sets an Envoy concurrency, which Envoy "
+                            + spec.getImageTag() + " ignores before " + EnvoySpec.MIN_CONCURRENCY_VERSION);
+                }
+            }
+        }
+    }
+
+    private void validateDiscovery(Set<String> discoveryServices, VirtualNodeSpec node) {
+        boolean sharesService = !node.getDiscoveryService().equals(node.getName());
+        if (discovery == DiscoveryMode.DNS) {
+            if (sharesService || !node.getDiscoveryAttributes().isEmpty()) {
+                throw new IllegalArgumentException(
+                        "Virtual node " + node.getName() + " selects Cloud Map instances, which needs cloud-map discovery");
+            }
+            return;
+        }
+        // Only nodes discovered through their own service have one to share
+        requireReference(discoveryServices, "Virtual node " + node.getName(), "discovery service",
+                node.getDiscoveryService());
+    }
+
+    private static void validateGrpcMatch(VirtualRouterSpec router, MeshRouteSpec route) {
+        if (route.getGrpcServiceName() == null
+                && (router.getProtocol() == ListenerProtocol.GRPC || route.getGrpcMethodName() != null)) {
+            throw new IllegalArgumentException("Route " + route.getName()
+                    + " needs a grpcServiceName, as gRPC routes and method matches do");
+        }
+    }
+
+    private static void validateRetry(VirtualRouterSpec router, MeshRouteSpec route) {
+        RetrySpec retry = route.getRetry();
+        if (retry == null) {
+            return;
+        }
+        if (router.getProtocol() == ListenerProtocol.TCP) {
+            throw new IllegalArgumentException("Route " + route.getName() + " is tcp and cannot retry");
+        }
+        if (router.getProtocol() != ListenerProtocol.GRPC && !retry.getGrpcEvents().isEmpty()) {
+            throw new IllegalArgumentException("Route " + route.getName() + " only accepts grpc retry events on grpc routers");
+        }
+        if (retry.getHttpEvents().isEmpty() && retry.getTcpEvents().isEmpty() && retry.getGrpcEvents().isEmpty()) {
+            throw new IllegalArgumentException("Retry policy of route " + route.getName() + " needs at least one retry event");
+        }
+        requireEvents(route, "http", RetrySpec.HTTP_EVENTS, retry.getHttpEvents());
+        requireEvents(route, "tcp", RetrySpec.TCP_EVENTS, retry.getTcpEvents());
+        requireEvents(route, "grpc", RetrySpec.GRPC_EVENTS, retry.getGrpcEvents());
+    }
+
+    private static void requireEvents(MeshRouteSpec route, String kind, Set<String> known, List<String> events) {
+        for (String event : events) {
+            // Same leniency as the mapping onto the CDK enums
+            if (event == null || !known.contains(event.trim().toLowerCase().replace('_', '-'))) {
+                throw new IllegalArgumentException("Route " + route.getName() + " retries on unknown " + kind
+                        + " event " + event + ", expected one of " + new TreeSet<>(known));
+            }
+        }
+    }
+
+    private void validateShift(MeshRouteSpec route) {
+        TrafficShiftSpec shift = route.getShift();
+        if (shift == null) {
+            return;
+        }
+        if (!metrics.isEnabled()) {
+            throw new IllegalArgumentException("Route " + route.getName() + " shifts traffic, which needs metrics enabled");
+        }
+        boolean canaryIsTarget = false;
+        int baselineWeight = 0;
+        for (WeightedTargetSpec target : route.getTargets()) {
+            if (target.getNode().equals(shift.getCanary())) {
+                canaryIsTarget = true;
+            } else {
+                baselineWeight += target.getWeight();
+            }
+        }
+        if (!canaryIsTarget || baselineWeight == 0) {
+            throw new IllegalArgumentException("Route " + route.getName()
+                    + " needs its canary among its targets and another target with a weight");
+        }
+        if (shift.getSteps().isEmpty()) {
+            throw new IllegalArgumentException("Traffic shift of route " + route.getName() + " has no steps");
+        }
+        int previous = 0;
+        for (int step : shift.getSteps()) {
+            if (step <= previous || step > 100) {
+                throw new IllegalArgumentException(
+                        "Traffic shift steps of route " + route.getName() + " must increase within 1 to 100");
+            }
+            previous = step;
+        }
+    }
+
+    private static void requireName(String kind, String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Every " + kind + " needs a name");
+        }
+    }
+
+    private static void requireUnique(Set<String> seen, String kind, String name) {
+        if (!seen.add(name)) {
+            throw new IllegalArgumentException("Duplicate " + kind + " " + name);
+        }
+    }
+
+    private static void requireReference(Set<String> known, String owner, String kind, String name) {
+        if (!known.contains(name)) {
+            throw new IllegalArgumentException(owner + " references unknown " + kind + " " + name);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.ds.sample.appmesh.topology;
+
+/**
+ * Opt-in export of Envoy statistics to CloudWatch, with dashboards and latency alarms per virtual node.
+ */
+public class MetricsSpec {
+    private boolean enabled;
+    private int p99LatencyAlarmMillis = 1000;
+    private int alarmEvaluationPeriods = 3;
+    private int nodesPerDashboard = 50;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getP99LatencyAlarmMillis() {
+        return p99LatencyAlarmMillis;
+    }
+
+    public int getAlarmEvaluationPeriods() {
+        return alarmEvaluationPeriods;
+    }
+
+    /**
+     * Virtual nodes shown per dashboard, keeping large meshes under the CloudWatch widget limit.
+     */
+    public int getNodesPerDashboard() {
+        return nodesPerDashboard;
+    }
+}
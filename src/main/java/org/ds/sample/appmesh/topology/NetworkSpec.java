@@ -0,0 +1,31 @@
+package org.ds.sample.appmesh.topology;
+
+/**
+ * VPC layout: availability zones, NAT gateways and the VPC endpoints keeping AWS traffic off them.
+ */
+public class NetworkSpec {
+    private int maxAzs = 3;
+    private Integer natGateways;
+    private boolean vpcEndpoints;
+
+    public int getMaxAzs() {
+        return maxAzs;
+    }
+
+    /**
+     * NAT gateways of the VPC, null for one per availability zone so no zone depends on another's.
+     * Fewer gateways cost less but route the other zones' internet traffic across zones.
+     */
+    public Integer getNatGateways() {
+        return natGateways;
+    }
+
+    /**
+     * Adds interface endpoints for ECR, CloudWatch Logs and App Mesh Envoy management, and a gateway
+     * endpoint for S3 holding the image layers. X-Ray and CloudWatch endpoints are added when tracing
+     * and metrics are enabled, and the ECS, ECS agent and ECS telemetry endpoints with EC2 capacity.
+     */
+    public boolean isVpcEndpoints() {
+        return vpcEndpoints;
+    }
+}
@@ -0,0 +1,44 @@
+package org.ds.sample.appmesh.topology;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Named connection pool, outlier detection and timeout settings for virtual node listeners. The
+ * values behind each profile live in {@link org.ds.sample.appmesh.components.ListenerProfiles}.
+ */
+public enum PerformanceProfile {
+    /**
+     * Small pools and short timeouts that shed load early rather than queue it.
+     */
+    LATENCY_SENSITIVE("latency-sensitive"),
+    /**
+     * Large pools for many concurrent short requests.
+     */
+    HIGH_THROUGHPUT("high-throughput"),
+    /**
+     * Few connections with deep queues and long timeouts for slow, bulky requests.
+     */
+    BATCH("batch");
+
+    private final String profileName;
+
+    PerformanceProfile(String profileName) {
+        this.profileName = profileName;
+    }
+
+    @JsonValue
+    public String getProfileName() {
+        return profileName;
+    }
+
+    @JsonCreator
+    public static PerformanceProfile fromName(String name) {
+        for (PerformanceProfile profile : values()) {
+            if (profile.profileName.equalsIgnoreCase(name) || profile.name().equalsIgnoreCase(name)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown performance profile " + name);
+    }
+}
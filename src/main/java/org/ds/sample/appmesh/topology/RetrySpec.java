@@ -0,0 +1,42 @@
+package org.ds.sample.appmesh.topology;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Retry policy of a route. Events use the App Mesh names, e.g. server-error, connection-error or
+ * unavailable.
+ */
+public class RetrySpec {
+    public static final Set<String> HTTP_EVENTS = Set.of("server-error", "gateway-error", "client-error", "stream-error");
+    public static final Set<String> TCP_EVENTS = Set.of("connection-error");
+    public static final Set<String> GRPC_EVENTS =
+            Set.of("cancelled", "deadline-exceeded", "internal", "resource-exhausted", "unavailable");
+
+    private List<String> httpEvents = new ArrayList<>();
+    private List<String> tcpEvents = new ArrayList<>();
+    private List<String> grpcEvents = new ArrayList<>();
+    private int maxRetries = 2;
+    private long perRetryTimeoutMillis = 1000;
+
+    public List<String> getHttpEvents() {
+        return httpEvents;
+    }
+
+    public List<String> getTcpEvents() {
+        return tcpEvents;
+    }
+
+    public List<String> getGrpcEvents() {
+        return grpcEvents;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public long getPerRetryTimeoutMillis() {
+        return perRetryTimeoutMillis;
+    }
+}
@@ -0,0 +1,43 @@
+package org.ds.sample.appmesh.topology;
+
+/**
+ * Target tracking autoscaling of the ECS service running a virtual node's task.
+ */
+public class ScalingSpec {
+    private int minCapacity = 1;
+    private int maxCapacity = 2;
+    private Integer targetCpuPercent = 50;
+    private Integer targetRequestsPerTask;
+    private int scaleInCooldownSeconds = 60;
+    private int scaleOutCooldownSeconds = 30;
+
+    public int getMinCapacity() {
+        return minCapacity;
+    }
+
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    /**
+     * Average CPU utilization to hold, null to not scale on CPU.
+     */
+    public Integer getTargetCpuPercent() {
+        return targetCpuPercent;
+    }
+
+    /**
+     * Envoy upstream requests per task per minute to hold, null to not scale on requests.
+     */
+    public Integer getTargetRequestsPerTask() {
+        return targetRequestsPerTask;
+    }
+
+    public int getScaleInCooldownSeconds() {
+        return scaleInCooldownSeconds;
+    }
+
+    public int getScaleOutCooldownSeconds() {
+        return scaleOutCooldownSeconds;
+    }
+}
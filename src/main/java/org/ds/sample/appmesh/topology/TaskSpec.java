@@ -0,0 +1,97 @@
+package org.ds.sample.appmesh.topology;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ECS task definition running the application container of a virtual node next to its Envoy proxy.
+ */
+public class TaskSpec {
+    private String id;
+    private String family;
+    private String repository;
+    private String tag = "latest";
+    private String cpu = "512";
+    private String memoryMiB = "1024";
+    private int appMemoryLimitMiB = 512;
+    private int noFileLimit = 65535;
+    private Map<String, String> environment = new LinkedHashMap<>();
+    private ScalingSpec scaling;
+    private EnvoySpec envoy;
+    private CpuArchitecture cpuArchitecture;
+    private Integer logRetentionDays;
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFamily() {
+        return family;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getCpu() {
+        return cpu;
+    }
+
+    public String getMemoryMiB() {
+        return memoryMiB;
+    }
+
+    public int getAppMemoryLimitMiB() {
+        return appMemoryLimitMiB;
+    }
+
+    /**
+     * Soft and hard nofile ulimit of the application container.
+     */
+    public int getNoFileLimit() {
+        return noFileLimit;
+    }
+
+    public Map<String, String> getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * Autoscaling of the service running this task, null for a single task without autoscaling.
+     */
+    public ScalingSpec getScaling() {
+        return scaling;
+    }
+
+    /**
+     * Envoy settings of this task, null to use those of the topology.
+     */
+    public EnvoySpec getEnvoy() {
+        return envoy;
+    }
+
+    /**
+     * True when the service scales on Envoy request metrics, which need the stats exporter sidecar.
+     */
+    public boolean isScalingOnRequests() {
+        return scaling != null && scaling.getTargetRequestsPerTask() != null;
+    }
+
+    /**
+     * Architecture of the task, null for the one of the topology's compute settings.
+     */
+    public CpuArchitecture getCpuArchitecture() {
+        return cpuArchitecture;
+    }
+
+    /**
+     * Retention of a log group of this service's own, null to follow the topology's logging settings.
+     */
+    public Integer getLogRetentionDays() {
+        return logRetentionDays;
+    }
+}
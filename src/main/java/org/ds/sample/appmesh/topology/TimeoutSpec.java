@@ -0,0 +1,17 @@
+package org.ds.sample.appmesh.topology;
+
+/**
+ * Request and idle timeouts of a route, either left null keeps the Envoy default.
+ */
+public class TimeoutSpec {
+    private Long perRequestMillis;
+    private Long idleMillis;
+
+    public Long getPerRequestMillis() {
+        return perRequestMillis;
+    }
+
+    public Long getIdleMillis() {
+        return idleMillis;
+    }
+}
@@ -0,0 +1,75 @@
+package org.ds.sample.appmesh.topology;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.cfg.MapperBuilder;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Reads a {@link MeshTopology} from JSON, or from YAML when the name ends in .yaml or .yml.
+ */
+public class TopologyLoader {
+    public static final String DEFAULT_RESOURCE = "/topology/colorapp.json";
+    /**
+     * The color app with every opt-in feature turned on.
+     */
+    public static final String SHOWCASE_RESOURCE = "/topology/showcase.json";
+
+    public static MeshTopology fromFile(Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in, path.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read topology " + path, e);
+        }
+    }
+
+    public static MeshTopology fromResource(String resource) {
+        try (InputStream in = TopologyLoader.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Topology resource not found: " + resource);
+            }
+            return read(in, resource);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read topology " + resource, e);
+        }
+    }
+
+    /**
+     * Builds a topology from nested maps and lists, for topologies generated in code.
+     */
+    public static MeshTopology fromMap(Map<String, Object> spec) {
+        MeshTopology topology = mapperFor("").convertValue(spec, MeshTopology.class);
+        topology.validate();
+        return topology;
+    }
+
+    private static MeshTopology read(InputStream in, String name) throws IOException {
+        MeshTopology topology = mapperFor(name).readValue(in, MeshTopology.class);
+        topology.validate();
+        return topology;
+    }
+
+    private static ObjectMapper mapperFor(String name) {
+        String lower = name.toLowerCase();
+        MapperBuilder<?, ?> builder = lower.endsWith(".yaml") || lower.endsWith(".yml")
+                ? YAMLMapper.builder()
+                : JsonMapper.builder();
+        return builder
+                .visibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+                .visibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+                .configure(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS, true)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true)
+                .build();
+    }
+}
@@ -0,0 +1,23 @@
+package org.ds.sample.appmesh.topology;
+
+/**
+ * Opt-in X-Ray tracing through Envoy, sampling a reservoir of requests per second plus a fixed rate of
+ * the rest.
+ */
+public class TracingSpec {
+    private boolean enabled;
+    private double fixedRate = 0.05;
+    private int reservoirPerSecond = 1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getFixedRate() {
+        return fixedRate;
+    }
+
+    public int getReservoirPerSecond() {
+        return reservoirPerSecond;
+    }
+}
@@ -0,0 +1,58 @@
+package org.ds.sample.appmesh.topology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Progressive shift of a route's traffic onto a canary target, advanced by a state machine while the
+ * canary's latency and error alarms stay green.
+ */
+public class TrafficShiftSpec {
+    private String canary;
+    private List<Integer> steps = new ArrayList<>(Arrays.asList(1, 5, 25, 100));
+    private int bakeTimeSeconds = 300;
+    private Integer p99LatencyAlarmMillis;
+    private int maxServerErrors = 5;
+    private int alarmEvaluationPeriods = 1;
+
+    /**
+     * Target node receiving the shifted traffic.
+     */
+    public String getCanary() {
+        return canary;
+    }
+
+    /**
+     * Increasing percentages of the route's traffic sent to the canary, the rest being split over the
+     * other targets by their declared weights.
+     */
+    public List<Integer> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Time each step runs before the alarms are checked.
+     */
+    public int getBakeTimeSeconds() {
+        return bakeTimeSeconds;
+    }
+
+    /**
+     * p99 latency alarm threshold of the canary, null to use the node's latency alarm of the topology metrics.
+     */
+    public Integer getP99LatencyAlarmMillis() {
+        return p99LatencyAlarmMillis;
+    }
+
+    /**
+     * Upstream 5xx responses of the canary per minute above which the shift is rolled back.
+     */
+    public int getMaxServerErrors() {
+        return maxServerErrors;
+    }
+
+    public int getAlarmEvaluationPeriods() {
+        return alarmEvaluationPeriods;
+    }
+}
@@ -0,0 +1,111 @@
+package org.ds.sample.appmesh.topology;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class VirtualNodeSpec {
+    /**
+     * Bounds App Mesh puts on a listener health check interval, in milliseconds.
+     */
+    public static final int MIN_HEALTH_CHECK_INTERVAL_MILLIS = 5000;
+    public static final int MAX_HEALTH_CHECK_INTERVAL_MILLIS = 300000;
+
+    private String name;
+    private String id;
+    private String hostname;
+    private ListenerProtocol protocol = ListenerProtocol.HTTP;
+    private int port = 9080;
+    private boolean healthCheck = true;
+    private String healthCheckPath = "/ping";
+    private int healthCheckIntervalMillis = 10000;
+    private PerformanceProfile profile;
+    private String discoveryService;
+    private Map<String, String> discoveryAttributes = new LinkedHashMap<>();
+    private List<String> backends = new ArrayList<>();
+    private TaskSpec task;
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Construct id of the virtual node, defaults to the node name followed by "VirtualNode".
+     */
+    public String getId() {
+        return id != null ? id : name + "VirtualNode";
+    }
+
+    public String getVirtualNodeName() {
+        return name + "-vn";
+    }
+
+    /**
+     * Host name registered in the service domain, defaults to the node name.
+     */
+    public String getHostname() {
+        return hostname != null ? hostname : name;
+    }
+
+    public ListenerProtocol getProtocol() {
+        return protocol;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public boolean isHealthCheck() {
+        return healthCheck;
+    }
+
+    /**
+     * Path probed by http and http2 health checks.
+     */
+    public String getHealthCheckPath() {
+        return healthCheckPath;
+    }
+
+    /**
+     * Interval of the listener health check. Every Envoy sending to the node runs it against every
+     * task, so short intervals multiply into a steady load on the application.
+     */
+    public int getHealthCheckIntervalMillis() {
+        return healthCheckIntervalMillis;
+    }
+
+    /**
+     * Connection pool, outlier detection and timeout profile of the listener, null for the Envoy defaults.
+     */
+    public PerformanceProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Node whose Cloud Map service this node's instances register in and are discovered from, defaults
+     * to the node itself. Sharing a service lets several nodes pick instances apart by attribute.
+     */
+    public String getDiscoveryService() {
+        return discoveryService != null ? discoveryService : name;
+    }
+
+    /**
+     * Cloud Map attributes an instance needs to be an endpoint of this node, such as the
+     * AVAILABILITY_ZONE or ECS_TASK_DEFINITION_FAMILY that ECS registers with every task.
+     */
+    public Map<String, String> getDiscoveryAttributes() {
+        return discoveryAttributes;
+    }
+
+    /**
+     * Names of the virtual services this node calls.
+     */
+    public List<String> getBackends() {
+        return backends;
+    }
+
+    public TaskSpec getTask() {
+        return task;
+    }
+}
@@ -0,0 +1,35 @@
+package org.ds.sample.appmesh.topology;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class VirtualRouterSpec {
+    private String name;
+    private String id;
+    private ListenerProtocol protocol = ListenerProtocol.HTTP;
+    private int port = 9080;
+    private List<MeshRouteSpec> routes = new ArrayList<>();
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Construct id of the virtual router, defaults to the router name.
+     */
+    public String getId() {
+        return id != null ? id : name;
+    }
+
+    public ListenerProtocol getProtocol() {
+        return protocol;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public List<MeshRouteSpec> getRoutes() {
+        return routes;
+    }
+}
@@ -0,0 +1,30 @@
+package org.ds.sample.appmesh.topology;
+
+/**
+ * A virtual service is provided by either a virtual router or a virtual node, never both.
+ */
+public class VirtualServiceSpec {
+    private String name;
+    private String id;
+    private String router;
+    private String node;
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Construct id of the virtual service, defaults to the service name followed by "Service".
+     */
+    public String getId() {
+        return id != null ? id : name + "Service";
+    }
+
+    public String getRouter() {
+        return router;
+    }
+
+    public String getNode() {
+        return node;
+    }
+}
@@ -0,0 +1,14 @@
+package org.ds.sample.appmesh.topology;
+
+public class WeightedTargetSpec {
+    private String node;
+    private int weight = 1;
+
+    public String getNode() {
+        return node;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,110 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.CdkAppMeshApplication;
+import org.ds.sample.appmesh.topology.TopologyLoader;
+import org.junit.jupiter.api.Test;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.assertions.Template;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Synthesizes EC2 and Fargate capacity, and checks the trunking custom resource, the runtime platform
+ * override and the capacity provider strategies of the services.
+ */
+public class ClusterCapacityTest {
+    private static final Map<String, Object> ARM64 = Map.of("CpuArchitecture", "ARM64", "OperatingSystemFamily", "LINUX");
+
+    @Test
+    public void enablesTrunkingBeforeInstancesRegister() {
+        List<Stack> stacks = synthesize(Map.of("capacity", "ec2", "cpuArchitecture", "arm64"), Map.of());
+        Template network = Template.fromStack(stacks.get(0));
+
+        network.resourceCountIs("Custom::AWS", 1);
+        Map.Entry<String, Map<String, Object>> trunking = only(network, "Custom::AWS");
+        String create = String.valueOf(properties(trunking).get("Create"));
+        assertTrue(create.contains("\"action\":\"putAccountSetting\""), create);
+        assertTrue(create.contains("\"name\":\"awsvpcTrunking\""), create);
+        assertTrue(create.contains("\"value\":\"enabled\""), create);
+        assertTrue(create.contains("ecsinstancesInstanceRole"), "Trunking is not enabled for the instance role: " + create);
+        assertEquals(properties(trunking).get("Create"), properties(trunking).get("Update"));
+
+        List<?> dependsOn = (List<?>) only(network, "AWS::AutoScaling::AutoScalingGroup").getValue().get("DependsOn");
+        assertTrue(dependsOn.contains(trunking.getKey()), "Instances register before trunking is on");
+    }
+
+    @Test
+    public void runsEc2TasksOnTheInstances() {
+        List<Stack> stacks = synthesize(Map.of("capacity", "ec2", "cpuArchitecture", "arm64", "binpack", "cpu"),
+                Map.of());
+        Template compute = Template.fromStack(stacks.get(2));
+
+        assertEquals(ARM64, properties(only(compute, "AWS::ECS::TaskDefinition")).get("RuntimePlatform"));
+        Map<?, ?> service = properties(only(compute, "AWS::ECS::Service"));
+        List<?> strategies = (List<?>) service.get("CapacityProviderStrategy");
+        assertEquals(1, strategies.size());
+        assertEquals(1, ((Map<?, ?>) strategies.get(0)).get("Weight"));
+        assertEquals(List.of(Map.of("Field", "cpu", "Type", "binpack")), service.get("PlacementStrategies"));
+    }
+
+    @Test
+    public void splitsFargateTasksAndRunsTheGatewayOnArm64() {
+        List<Stack> stacks = synthesize(Map.of("fargateBase", 1, "fargateWeight", 1, "fargateSpotWeight", 3),
+                Map.of("enabled", true, "name", "gateway", "cpuArchitecture", "arm64",
+                        "routes", List.of(Map.of("name", "all", "prefix", "/", "service", "svc"))));
+        Template network = Template.fromStack(stacks.get(0));
+        Template compute = Template.fromStack(stacks.get(2));
+
+        network.resourceCountIs("Custom::AWS", 0);
+        network.resourceCountIs("AWS::AutoScaling::AutoScalingGroup", 0);
+        Map<String, Map<String, Object>> taskDefinitions = compute.findResources("AWS::ECS::TaskDefinition");
+        assertEquals(2, taskDefinitions.size());
+        for (Map<String, Object> taskDef : taskDefinitions.values()) {
+            Map<?, ?> properties = (Map<?, ?>) taskDef.get("Properties");
+            if ("gateway".equals(properties.get("Family"))) {
+                assertEquals(ARM64, properties.get("RuntimePlatform"));
+            } else {
+                assertNull(properties.get("RuntimePlatform"));
+            }
+        }
+
+        for (Map<String, Object> service : compute.findResources("AWS::ECS::Service").values()) {
+            Map<?, ?> properties = (Map<?, ?>) service.get("Properties");
+            if (properties.get("CapacityProviderStrategy") == null) {
+                // The gateway runs on the Fargate launch type
+                assertEquals("FARGATE", properties.get("LaunchType"));
+                continue;
+            }
+            assertEquals(List.of(
+                    Map.of("CapacityProvider", "FARGATE", "Base", 1, "Weight", 1),
+                    Map.of("CapacityProvider", "FARGATE_SPOT", "Weight", 3)), properties.get("CapacityProviderStrategy"));
+        }
+    }
+
+    private static List<Stack> synthesize(Map<String, Object> compute, Map<String, Object> ingress) {
+        return CdkAppMeshApplication.createStacks(new App(), StackProps.builder().build(), TopologyLoader.fromMap(Map.of(
+                "meshName", "capacityMesh",
+                "compute", compute,
+                "ingress", ingress,
+                "virtualNodes", List.of(Map.of("name", "a", "task", Map.of("family", "a", "repository", "app"))),
+                "virtualServices", List.of(Map.of("name", "svc", "node", "a")))), Set.of(CdkAppMeshApplication.COMPUTE));
+    }
+
+    private static Map.Entry<String, Map<String, Object>> only(Template template, String type) {
+        Map<String, Map<String, Object>> resources = template.findResources(type);
+        assertEquals(1, resources.size(), type);
+        return resources.entrySet().iterator().next();
+    }
+
+    private static Map<?, ?> properties(Map.Entry<String, Map<String, Object>> resource) {
+        return (Map<?, ?>) resource.getValue().get("Properties");
+    }
+}
@@ -0,0 +1,138 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.CdkAppMeshApplication;
+import org.ds.sample.appmesh.topology.TopologyLoader;
+import org.junit.jupiter.api.Test;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.assertions.Template;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Synthesizes the log drivers and log groups of a few logging settings, and checks the driver options
+ * and which services share a group.
+ */
+public class ContainerLoggingTest {
+    private static final Map<String, Object> INGRESS = Map.of("enabled", true, "name", "gateway",
+            "routes", List.of(Map.of("name", "all", "prefix", "/", "service", "svc")));
+
+    @Test
+    public void buffersNonBlockingLogs() {
+        Template compute = synthesize(Map.of("mode", "non-blocking", "maxBufferSize", "25m"), Map.of(), Map.of());
+
+        List<Map<?, ?>> configurations = logConfigurations(compute);
+        assertFalse(configurations.isEmpty());
+        for (Map<?, ?> configuration : configurations) {
+            assertEquals("awslogs", configuration.get("LogDriver"));
+            Map<?, ?> options = (Map<?, ?>) configuration.get("Options");
+            assertEquals("non-blocking", options.get("mode"));
+            assertEquals("25m", options.get("max-buffer-size"));
+            assertTrue(((Map<?, ?>) options.get("awslogs-group")).containsKey("Ref"), "No log group: " + options);
+            assertTrue(options.containsKey("awslogs-stream-prefix"), "No stream prefix: " + options);
+        }
+    }
+
+    @Test
+    public void keepsDockerBufferWithoutSize() {
+        Template compute = synthesize(Map.of("mode", "non-blocking"), Map.of(), Map.of());
+
+        for (Map<?, ?> configuration : logConfigurations(compute)) {
+            Map<?, ?> options = (Map<?, ?>) configuration.get("Options");
+            assertEquals("non-blocking", options.get("mode"));
+            assertFalse(options.containsKey("max-buffer-size"));
+        }
+    }
+
+    @Test
+    public void sharesOneGroupByDefault() {
+        Template compute = synthesize(Map.of(), Map.of(), INGRESS);
+
+        compute.resourceCountIs("AWS::Logs::LogGroup", 1);
+        assertEquals(1, logGroupRefs(compute).size());
+    }
+
+    @Test
+    public void givesEveryServiceItsOwnGroup() {
+        Template compute = synthesize(Map.of("groupPerService", true, "retentionDays", 30), Map.of(), INGRESS);
+
+        compute.resourceCountIs("AWS::Logs::LogGroup", 3);
+        assertEquals(Map.of("a-log-group", 30, "b-log-group", 30, "ingress-gateway-log-group", 30),
+                retentionByGroup(compute));
+        assertEquals(3, logGroupRefs(compute).size());
+    }
+
+    @Test
+    public void givesTasksWithTheirOwnRetentionTheirOwnGroup() {
+        Template compute = synthesize(Map.of(), Map.of("logRetentionDays", 90), INGRESS);
+
+        compute.resourceCountIs("AWS::Logs::LogGroup", 2);
+        assertEquals(Map.of("a-log-group", 90, "ecs-service-log-group", 14), retentionByGroup(compute));
+    }
+
+    /**
+     * Topology of nodes a and b behind one service. The task extras only apply to node a.
+     */
+    private static Template synthesize(Map<String, Object> logging, Map<String, Object> taskExtras,
+                                       Map<String, Object> ingress) {
+        Map<String, Object> taskA = new HashMap<>(taskExtras);
+        taskA.put("family", "a");
+        taskA.put("repository", "app");
+        return Template.fromStack(CdkAppMeshApplication.createStacks(new App(), StackProps.builder().build(),
+                TopologyLoader.fromMap(Map.of(
+                        "meshName", "loggingMesh",
+                        "logging", logging,
+                        "ingress", ingress,
+                        "virtualNodes", List.of(
+                                Map.of("name", "a", "task", taskA),
+                                Map.of("name", "b", "task", Map.of("family", "b", "repository", "app"))),
+                        "virtualServices", List.of(Map.of("name", "svc", "node", "a")))),
+                Set.of(CdkAppMeshApplication.COMPUTE)).get(2));
+    }
+
+    private static List<Map<?, ?>> logConfigurations(Template compute) {
+        List<Map<?, ?>> configurations = new ArrayList<>();
+        for (Map<String, Object> taskDef : compute.findResources("AWS::ECS::TaskDefinition").values()) {
+            Map<?, ?> properties = (Map<?, ?>) taskDef.get("Properties");
+            for (Object container : (List<?>) properties.get("ContainerDefinitions")) {
+                configurations.add((Map<?, ?>) ((Map<?, ?>) container).get("LogConfiguration"));
+            }
+        }
+        return configurations;
+    }
+
+    private static Set<Object> logGroupRefs(Template compute) {
+        Set<Object> refs = new HashSet<>();
+        for (Map<?, ?> configuration : logConfigurations(compute)) {
+            refs.add(((Map<?, ?>) configuration.get("Options")).get("awslogs-group"));
+        }
+        return refs;
+    }
+
+    /**
+     * Retention of every log group, keyed by the construct id its logical id starts with.
+     */
+    private static Map<String, Object> retentionByGroup(Template compute) {
+        Map<String, Object> retention = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> group : compute.findResources("AWS::Logs::LogGroup").entrySet()) {
+            String id = null;
+            for (String candidate : List.of("a-log-group", "b-log-group", "ingress-gateway-log-group",
+                    "ecs-service-log-group")) {
+                if (group.getKey().startsWith(candidate.replace("-", ""))) {
+                    id = candidate;
+                }
+            }
+            retention.put(id, ((Map<?, ?>) group.getValue().get("Properties")).get("RetentionInDays"));
+        }
+        return retention;
+    }
+}
@@ -0,0 +1,127 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.CdkAppMeshApplication;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.TopologyLoader;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.assertions.Template;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Synthesizes a service scaling on CPU and on requests per task, and checks the metric math the requests
+ * policy is overridden with.
+ */
+public class EcsServicesTest {
+    private static Template network;
+    private static Template compute;
+
+    @BeforeAll
+    public static void synthesize() {
+        MeshTopology topology = TopologyLoader.fromMap(Map.of(
+                "meshName", "scaleMesh",
+                "virtualNodes", List.of(Map.of(
+                        "name", "a",
+                        "task", Map.of(
+                                "repository", "app",
+                                "scaling", Map.of(
+                                        "minCapacity", 1,
+                                        "maxCapacity", 4,
+                                        "targetCpuPercent", 50,
+                                        "targetRequestsPerTask", 1000))))));
+
+        List<Stack> stacks = CdkAppMeshApplication.createStacks(new App(), StackProps.builder().build(), topology,
+                Set.of(CdkAppMeshApplication.COMPUTE));
+        network = Template.fromStack(stacks.get(0));
+        compute = Template.fromStack(stacks.get(2));
+    }
+
+    @Test
+    public void scalesOnCpuAndRequests() {
+        compute.resourceCountIs("AWS::ApplicationAutoScaling::ScalingPolicy", 2);
+        assertEquals("ECSServiceAverageCPUUtilization", ((Map<?, ?>) configuration("cpuscaling")
+                .get("PredefinedMetricSpecification")).get("PredefinedMetricType"));
+        assertEquals(1000, configuration("requestsscaling").get("TargetValue"));
+    }
+
+    @Test
+    public void tracksRequestsPerTask() {
+        Map<?, ?> specification = (Map<?, ?>) configuration("requestsscaling").get("CustomizedMetricSpecification");
+        for (String property : List.of("MetricName", "Namespace", "Dimensions", "Statistic", "Unit")) {
+            assertFalse(specification.containsKey(property), property + " left next to the metric math");
+        }
+
+        List<?> metrics = (List<?>) specification.get("Metrics");
+        assertEquals(3, metrics.size());
+        Map<?, ?> requests = query(metrics, "requests");
+        assertEquals(false, requests.get("ReturnData"));
+        Map<?, ?> requestStat = (Map<?, ?>) requests.get("MetricStat");
+        assertEquals("Sum", requestStat.get("Stat"));
+        Map<?, ?> requestMetric = (Map<?, ?>) requestStat.get("Metric");
+        assertEquals(EnvoyMetrics.NAMESPACE, requestMetric.get("Namespace"));
+        assertEquals(EnvoyMetrics.UPSTREAM_REQUESTS, requestMetric.get("MetricName"));
+        assertEquals(Map.of(EnvoyMetrics.VIRTUAL_NODE_DIMENSION, "a-vn",
+                        EnvoyMetrics.CLUSTER_NAME_DIMENSION, "cds_ingress_scaleMesh_a-vn_http_9080"),
+                dimensions(requestMetric));
+
+        Map<?, ?> tasks = query(metrics, "tasks");
+        assertEquals(false, tasks.get("ReturnData"));
+        Map<?, ?> taskMetric = (Map<?, ?>) ((Map<?, ?>) tasks.get("MetricStat")).get("Metric");
+        assertEquals("ECS/ContainerInsights", taskMetric.get("Namespace"));
+        assertEquals("RunningTaskCount", taskMetric.get("MetricName"));
+        assertEquals(Set.of("ClusterName", "ServiceName"), dimensions(taskMetric).keySet());
+
+        Map<?, ?> expression = query(metrics, "expression");
+        assertEquals("requests / tasks", expression.get("Expression"));
+        assertEquals(true, expression.get("ReturnData"));
+    }
+
+    @Test
+    public void enablesContainerInsights() {
+        Map<String, Map<String, Object>> clusters = network.findResources("AWS::ECS::Cluster");
+        Map<?, ?> properties = (Map<?, ?>) clusters.values().iterator().next().get("Properties");
+        assertEquals(List.of(Map.of("Name", "containerInsights", "Value", "enabled")),
+                properties.get("ClusterSettings"));
+    }
+
+    private static Map<?, ?> configuration(String policyId) {
+        Map<String, Map<String, Object>> policies = compute.findResources("AWS::ApplicationAutoScaling::ScalingPolicy");
+        for (Map.Entry<String, Map<String, Object>> policy : policies.entrySet()) {
+            if (policy.getKey().contains(policyId)) {
+                return (Map<?, ?>) ((Map<?, ?>) policy.getValue().get("Properties"))
+                        .get("TargetTrackingScalingPolicyConfiguration");
+            }
+        }
+        throw new AssertionError("No scaling policy " + policyId);
+    }
+
+    private static Map<?, ?> query(List<?> metrics, String id) {
+        for (Object metric : metrics) {
+            if (id.equals(((Map<?, ?>) metric).get("Id"))) {
+                return (Map<?, ?>) metric;
+            }
+        }
+        throw new AssertionError("No metric query " + id);
+    }
+
+    private static Map<Object, Object> dimensions(Map<?, ?> metric) {
+        Map<Object, Object> dimensions = new HashMap<>();
+        for (Object dimension : (List<?>) metric.get("Dimensions")) {
+            Map<?, ?> pair = (Map<?, ?>) dimension;
+            assertNotNull(pair.get("Value"));
+            dimensions.put(pair.get("Name"), pair.get("Value"));
+        }
+        return dimensions;
+    }
+}
@@ -0,0 +1,146 @@
+package org.ds.sample.appmesh.components;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.ds.sample.appmesh.MeshStack;
+import org.ds.sample.appmesh.NetworkStack;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.TopologyLoader;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.assertions.Template;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Synthesizes the controller of a route shifting onto a canary kept at weight 0, with baselines weighted
+ * 3 to 1, and checks the states and the weights each route update sets.
+ */
+public class TrafficShiftingTest {
+    private static Template template;
+    private static JsonNode states;
+
+    @BeforeAll
+    public static void synthesize() throws IOException {
+        MeshTopology topology = TopologyLoader.fromMap(Map.of(
+                "meshName", "shiftMesh",
+                "metrics", Map.of("enabled", true),
+                "virtualNodes", List.of(Map.of("name", "blue"), Map.of("name", "red"), Map.of("name", "white")),
+                "virtualRouters", List.of(Map.of(
+                        "name", "router",
+                        "routes", List.of(Map.of(
+                                "name", "route",
+                                "targets", List.of(
+                                        Map.of("node", "blue", "weight", 3),
+                                        Map.of("node", "red", "weight", 1),
+                                        Map.of("node", "white", "weight", 0)),
+                                "shift", Map.of("canary", "white", "steps", List.of(10, 50, 100),
+                                        "bakeTimeSeconds", 60))))),
+                "virtualServices", List.of(Map.of("name", "service", "router", "router"))));
+
+        App app = new App();
+        StackProps props = StackProps.builder().build();
+        NetworkStack network = new NetworkStack(app, "NetworkStack", props, topology);
+        template = Template.fromStack(new MeshStack(app, "MeshStack", props, topology, network));
+
+        template.resourceCountIs("AWS::StepFunctions::StateMachine", 1);
+        Map<String, Map<String, Object>> machines = template.findResources("AWS::StepFunctions::StateMachine");
+        Map<?, ?> properties = (Map<?, ?>) machines.values().iterator().next().get("Properties");
+        states = JsonMapper.builder().build().readTree(literal(properties.get("DefinitionString"))).get("States");
+    }
+
+    @Test
+    public void stepsThroughEveryPercentage() {
+        for (int percent : List.of(10, 50, 100)) {
+            assertEquals("Task", state("shift-" + percent).get("Type").asText());
+            assertEquals("bake-" + percent, state("shift-" + percent).get("Next").asText());
+            assertEquals(60, state("bake-" + percent).get("Seconds").asInt());
+            assertEquals("check-" + percent, state("bake-" + percent).get("Next").asText());
+            assertEquals("green-" + percent, state("check-" + percent).get("Next").asText());
+            assertEquals("Choice", state("green-" + percent).get("Type").asText());
+            assertEquals("rollback", state("green-" + percent).get("Choices").get(0).get("Next").asText());
+            assertEquals("rollback", state("shift-" + percent).get("Catch").get(0).get("Next").asText());
+            assertEquals("States.ALL", state("shift-" + percent).get("Retry").get(0).get("ErrorEquals").get(0).asText());
+            assertEquals("rollback", state("check-" + percent).get("Catch").get(0).get("Next").asText());
+            assertEquals("States.ALL", state("check-" + percent).get("Retry").get(0).get("ErrorEquals").get(0).asText());
+        }
+        assertEquals("shift-50", state("green-10").get("Default").asText());
+        assertEquals("shift-100", state("green-50").get("Default").asText());
+        assertEquals("shifted", state("green-100").get("Default").asText());
+        assertEquals("Succeed", state("shifted").get("Type").asText());
+        assertEquals("rolled-back", state("rollback").get("Next").asText());
+        assertTrue(state("rollback").get("Retry").get(0).get("MaxAttempts").asInt() > 0);
+        assertEquals("Fail", state("rolled-back").get("Type").asText());
+    }
+
+    @Test
+    public void updatesTheRouteWeights() {
+        assertEquals(Map.of("blue-vn", 68, "red-vn", 22, "white-vn", 10), weights("shift-10"));
+        assertEquals(Map.of("blue-vn", 38, "red-vn", 12, "white-vn", 50), weights("shift-50"));
+        assertEquals(Map.of("blue-vn", 0, "red-vn", 0, "white-vn", 100), weights("shift-100"));
+        assertEquals(Map.of("blue-vn", 3, "red-vn", 1, "white-vn", 0), weights("rollback"));
+    }
+
+    @Test
+    public void keepsTheCanaryOutOfTheDeclaredRoute() {
+        Map<String, Map<String, Object>> routes = template.findResources("AWS::AppMesh::Route");
+        Map<?, ?> spec = (Map<?, ?>) ((Map<?, ?>) routes.values().iterator().next().get("Properties")).get("Spec");
+        List<?> targets = (List<?>) ((Map<?, ?>) ((Map<?, ?>) spec.get("HttpRoute")).get("Action")).get("WeightedTargets");
+        assertEquals(3, ((Map<?, ?>) targets.get(0)).get("Weight"));
+        assertEquals(1, ((Map<?, ?>) targets.get(1)).get("Weight"));
+        assertEquals(0, ((Map<?, ?>) targets.get(2)).get("Weight"));
+    }
+
+    @Test
+    public void callsAppMeshUpdateRoute() {
+        for (String update : List.of("shift-10", "shift-50", "shift-100", "rollback")) {
+            assertTrue(state(update).get("Resource").asText().endsWith("states:::aws-sdk:appmesh:updateRoute"));
+            JsonNode parameters = state(update).get("Parameters");
+            assertEquals("shiftMesh", parameters.get("MeshName").asText());
+            assertEquals("router", parameters.get("VirtualRouterName").asText());
+            assertEquals("route", parameters.get("RouteName").asText());
+        }
+    }
+
+    private static JsonNode state(String name) {
+        JsonNode state = states.get(name);
+        assertTrue(state != null, "No state " + name);
+        return state;
+    }
+
+    private static Map<String, Integer> weights(String update) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        JsonNode targets = state(update).get("Parameters").get("Spec").get("HttpRoute").get("Action").get("WeightedTargets");
+        for (JsonNode target : targets) {
+            weights.put(target.get("VirtualNode").asText(), target.get("Weight").asInt());
+        }
+        return weights;
+    }
+
+    /**
+     * Joins the literal parts of an {@code Fn::Join}, references becoming placeholders.
+     */
+    private static String literal(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        List<?> join = (List<?>) ((Map<?, ?>) value).get("Fn::Join");
+        if (join == null) {
+            return "${token}";
+        }
+        List<?> parts = (List<?>) join.get(1);
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < parts.size(); i++) {
+            joined.append(i > 0 ? join.get(0) : "").append(literal(parts.get(i)));
+        }
+        return joined.toString();
+    }
+}
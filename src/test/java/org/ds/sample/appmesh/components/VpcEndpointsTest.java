@@ -0,0 +1,92 @@
+package org.ds.sample.appmesh.components;
+
+import org.ds.sample.appmesh.NetworkStack;
+import org.ds.sample.appmesh.topology.TopologyLoader;
+import org.junit.jupiter.api.Test;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.assertions.Template;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Synthesizes the network stack of several topologies and checks which VPC endpoints each one gets.
+ */
+public class VpcEndpointsTest {
+    private static final Set<String> BASE = Set.of("ecr.api", "ecr.dkr", "logs", "appmesh-envoy-management");
+
+    @Test
+    public void addsNoEndpointsUnlessAsked() {
+        Template network = synthesize(Map.of(), Map.of(), false, false);
+
+        network.resourceCountIs("AWS::EC2::VPCEndpoint", 0);
+    }
+
+    @Test
+    public void addsTheEndpointsEveryTaskNeeds() {
+        Template network = synthesize(Map.of("vpcEndpoints", true), Map.of(), false, false);
+
+        assertEquals(Set.of("s3"), services(network, "Gateway"));
+        assertEquals(BASE, services(network, "Interface"));
+    }
+
+    @Test
+    public void addsMonitoringAndXRayWithMetricsAndTracing() {
+        Template network = synthesize(Map.of("vpcEndpoints", true), Map.of(), true, true);
+
+        Set<String> expected = new TreeSet<>(BASE);
+        expected.addAll(List.of("monitoring", "xray"));
+        assertEquals(expected, services(network, "Interface"));
+    }
+
+    @Test
+    public void addsEcsEndpointsForIsolatedInstances() {
+        Template network = synthesize(Map.of("vpcEndpoints", true, "natGateways", 0), Map.of("capacity", "ec2"),
+                false, false);
+
+        Set<String> expected = new TreeSet<>(BASE);
+        expected.addAll(List.of("ecs", "ecs-agent", "ecs-telemetry"));
+        assertEquals(expected, services(network, "Interface"));
+        network.resourceCountIs("AWS::EC2::NatGateway", 0);
+        List<?> instanceSubnets = (List<?>) ((Map<?, ?>) network.findResources("AWS::AutoScaling::AutoScalingGroup")
+                .values().iterator().next().get("Properties")).get("VPCZoneIdentifier");
+        for (Object subnet : instanceSubnets) {
+            assertTrue(String.valueOf(subnet).contains("Isolated"), "Instances outside the isolated subnets");
+        }
+    }
+
+    private static Template synthesize(Map<String, Object> network, Map<String, Object> compute, boolean metrics,
+                                       boolean tracing) {
+        Map<String, Object> topology = new HashMap<>();
+        topology.put("meshName", "endpointMesh");
+        topology.put("network", network);
+        topology.put("compute", compute);
+        topology.put("metrics", Map.of("enabled", metrics));
+        topology.put("tracing", Map.of("enabled", tracing));
+        topology.put("virtualNodes", List.of(Map.of("name", "a", "task", Map.of("repository", "app"))));
+        return Template.fromStack(new NetworkStack(new App(), "NetworkStack", StackProps.builder().build(),
+                TopologyLoader.fromMap(topology)));
+    }
+
+    /**
+     * Names of the endpoint services of the given type, without the com.amazonaws.region prefix.
+     */
+    private static Set<String> services(Template network, String type) {
+        Set<String> services = new TreeSet<>();
+        for (Map<String, Object> endpoint : network.findResources("AWS::EC2::VPCEndpoint").values()) {
+            Map<?, ?> properties = (Map<?, ?>) endpoint.get("Properties");
+            if (type.equals(properties.get("VpcEndpointType"))) {
+                List<?> parts = (List<?>) ((List<?>) ((Map<?, ?>) properties.get("ServiceName")).get("Fn::Join")).get(1);
+                services.add(((String) parts.get(parts.size() - 1)).substring(1));
+            }
+        }
+        return services;
+    }
+}
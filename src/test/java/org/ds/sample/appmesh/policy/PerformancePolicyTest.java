@@ -0,0 +1,324 @@
+package org.ds.sample.appmesh.policy;
+
+import org.ds.sample.appmesh.CdkAppMeshApplication;
+import org.ds.sample.appmesh.topology.MeshTopology;
+import org.ds.sample.appmesh.topology.TopologyLoader;
+import org.junit.jupiter.api.Test;
+import software.amazon.awscdk.App;
+import software.amazon.awscdk.AppProps;
+import software.amazon.awscdk.Aspects;
+import software.amazon.awscdk.Duration;
+import software.amazon.awscdk.Environment;
+import software.amazon.awscdk.Stack;
+import software.amazon.awscdk.StackProps;
+import software.amazon.awscdk.cxapi.SynthesisMessage;
+import software.amazon.awscdk.cxapi.SynthesisMessageLevel;
+import software.amazon.awscdk.services.appmesh.HttpConnectionPool;
+import software.amazon.awscdk.services.appmesh.HttpTimeout;
+import software.amazon.awscdk.services.appmesh.HttpGatewayListenerOptions;
+import software.amazon.awscdk.services.appmesh.HttpRouteSpecOptions;
+import software.amazon.awscdk.services.appmesh.HttpVirtualNodeListenerOptions;
+import software.amazon.awscdk.services.appmesh.Mesh;
+import software.amazon.awscdk.services.appmesh.RouteBaseProps;
+import software.amazon.awscdk.services.appmesh.RouteSpec;
+import software.amazon.awscdk.services.appmesh.ServiceDiscovery;
+import software.amazon.awscdk.services.appmesh.VirtualGateway;
+import software.amazon.awscdk.services.appmesh.VirtualGatewayListener;
+import software.amazon.awscdk.services.appmesh.VirtualNode;
+import software.amazon.awscdk.services.appmesh.VirtualNodeListener;
+import software.amazon.awscdk.services.appmesh.VirtualRouter;
+import software.amazon.awscdk.services.appmesh.VirtualRouterListener;
+import software.amazon.awscdk.services.appmesh.WeightedTarget;
+import software.amazon.awscdk.services.ecs.ContainerDefinitionOptions;
+import software.amazon.awscdk.services.ecs.ContainerImage;
+import software.amazon.awscdk.services.ecs.FargateTaskDefinition;
+import software.amazon.awscdk.services.ecs.PortMapping;
+import software.amazon.awscdk.services.ecs.Ulimit;
+import software.amazon.awscdk.services.ecs.UlimitName;
+import software.amazon.awscdk.services.elasticloadbalancingv2.CfnTargetGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * One stack per {@link PolicyRule} holding a resource that breaks it, plus the configured levels.
+ */
+public class PerformancePolicyTest {
+    private static final PortMapping HTTP_PORT = PortMapping.builder().containerPort(8080).build();
+    private static final Ulimit NOFILE = Ulimit.builder()
+            .name(UlimitName.NOFILE).softLimit(65536).hardLimit(65536).build();
+
+    @Test
+    public void reportsEnvoyDebugLogging() {
+        Stack stack = lint(new PerformancePolicy(), scope -> new FargateTaskDefinition(scope, "Task")
+                .addContainer("envoy", ContainerDefinitionOptions.builder()
+                        .image(ContainerImage.fromRegistry("envoy"))
+                        .environment(Map.of("ENVOY_LOG_LEVEL", "debug"))
+                        .build()));
+
+        assertReported(stack, SynthesisMessageLevel.WARNING, PolicyRule.ENVOY_DEBUG_LOGGING);
+    }
+
+    @Test
+    public void reportsListenersWithoutConnectionPool() {
+        Stack stack = lint(new PerformancePolicy(), scope -> VirtualGateway.Builder.create(scope, "Gateway")
+                .mesh(new Mesh(scope, "Mesh"))
+                .listeners(List.of(VirtualGatewayListener.http(HttpGatewayListenerOptions.builder().port(8080).build())))
+                .build());
+
+        assertReported(stack, SynthesisMessageLevel.WARNING, PolicyRule.LISTENER_CONNECTION_POOL);
+    }
+
+    @Test
+    public void reportsListenersWithoutTimeout() {
+        Stack stack = lint(new PerformancePolicy(), scope -> VirtualNode.Builder.create(scope, "Node")
+                .mesh(new Mesh(scope, "Mesh"))
+                .serviceDiscovery(ServiceDiscovery.dns("node.local"))
+                .listeners(List.of(VirtualNodeListener.http(HttpVirtualNodeListenerOptions.builder()
+                        .port(8080)
+                        .connectionPool(HttpConnectionPool.builder().maxConnections(64).maxPendingRequests(64).build())
+                        .build())))
+                .build());
+
+        assertReported(stack, SynthesisMessageLevel.WARNING, PolicyRule.LISTENER_TIMEOUT);
+        assertFalse(reported(stack, SynthesisMessageLevel.WARNING, PolicyRule.LISTENER_CONNECTION_POOL));
+    }
+
+    @Test
+    public void reportsRoutesWithoutRetryPolicy() {
+        Stack stack = lint(new PerformancePolicy(), scope -> {
+            Mesh mesh = new Mesh(scope, "Mesh");
+            VirtualRouter router = VirtualRouter.Builder.create(scope, "Router")
+                    .mesh(mesh)
+                    .listeners(List.of(VirtualRouterListener.http(8080)))
+                    .build();
+            router.addRoute("Route", RouteBaseProps.builder()
+                    .routeSpec(RouteSpec.http(HttpRouteSpecOptions.builder()
+                            .weightedTargets(List.of(WeightedTarget.builder()
+                                    .virtualNode(VirtualNode.Builder.create(scope, "Node").mesh(mesh).build())
+                                    .build()))
+                            .build()))
+                    .build());
+        });
+
+        assertReported(stack, SynthesisMessageLevel.WARNING, PolicyRule.ROUTE_RETRY_POLICY);
+    }
+
+    @Test
+    public void reportsFrequentHealthChecks() {
+        Stack stack = lint(new PerformancePolicy(), scope -> CfnTargetGroup.Builder.create(scope, "Targets")
+                .port(8080)
+                .protocol("HTTP")
+                .healthCheckIntervalSeconds(5)
+                .build());
+
+        assertReported(stack, SynthesisMessageLevel.WARNING, PolicyRule.HEALTH_CHECK_INTERVAL);
+    }
+
+    @Test
+    public void reportsTcpPortsWithoutNofileUlimit() {
+        Stack stack = lint(new PerformancePolicy(), scope -> new FargateTaskDefinition(scope, "Task")
+                .addContainer("app", ContainerDefinitionOptions.builder()
+                        .image(ContainerImage.fromRegistry("app"))
+                        .portMappings(List.of(HTTP_PORT))
+                        .build()));
+
+        assertReported(stack, SynthesisMessageLevel.WARNING, PolicyRule.NOFILE_ULIMIT);
+    }
+
+    @Test
+    public void reportsImagesOfAnotherRegion() {
+        Stack stack = lint(new PerformancePolicy(), "us-west-2", scope -> new FargateTaskDefinition(scope, "Task")
+                .addContainer("app", ContainerDefinitionOptions.builder()
+                        .image(ContainerImage.fromRegistry("123456789012.dkr.ecr.us-east-1.amazonaws.com/app:1"))
+                        .build()));
+
+        assertReported(stack, SynthesisMessageLevel.WARNING, PolicyRule.CROSS_REGION_IMAGE);
+    }
+
+    @Test
+    public void acceptsImagesOfTheStackRegion() {
+        Stack stack = lint(new PerformancePolicy(), "us-east-1", scope -> new FargateTaskDefinition(scope, "Task")
+                .addContainer("app", ContainerDefinitionOptions.builder()
+                        .image(ContainerImage.fromRegistry("123456789012.dkr.ecr.us-east-1.amazonaws.com/app:1"))
+                        .portMappings(List.of(HTTP_PORT))
+                        .build())
+                .addUlimits(NOFILE));
+
+        assertEquals(List.of(), messages(stack, SynthesisMessageLevel.WARNING));
+    }
+
+    @Test
+    public void acceptsListenersWithPoolAndTimeout() {
+        Stack stack = lint(new PerformancePolicy(), scope -> VirtualNode.Builder.create(scope, "Node")
+                .mesh(new Mesh(scope, "Mesh"))
+                .serviceDiscovery(ServiceDiscovery.dns("node.local"))
+                .listeners(List.of(VirtualNodeListener.http(HttpVirtualNodeListenerOptions.builder()
+                        .port(8080)
+                        .connectionPool(HttpConnectionPool.builder().maxConnections(64).maxPendingRequests(64).build())
+                        .timeout(HttpTimeout.builder().perRequest(Duration.seconds(5)).build())
+                        .build())))
+                .build());
+
+        assertEquals(List.of(), messages(stack, SynthesisMessageLevel.WARNING));
+    }
+
+    @Test
+    public void reportsErrorsAtErrorLevel() {
+        PerformancePolicy policy = new PerformancePolicy().configure(Map.of("envoy-debug-logging", "error"));
+        Stack stack = lint(policy, scope -> new FargateTaskDefinition(scope, "Task")
+                .addContainer("envoy", ContainerDefinitionOptions.builder()
+                        .image(ContainerImage.fromRegistry("envoy"))
+                        .environment(Map.of("ENVOY_LOG_LEVEL", "trace"))
+                        .build()));
+
+        assertReported(stack, SynthesisMessageLevel.ERROR, PolicyRule.ENVOY_DEBUG_LOGGING);
+        assertFalse(reported(stack, SynthesisMessageLevel.WARNING, PolicyRule.ENVOY_DEBUG_LOGGING));
+    }
+
+    @Test
+    public void skipsRulesTurnedOff() {
+        PerformancePolicy policy = new PerformancePolicy().configure(Map.of("NOFILE_ULIMIT", "off"));
+        Stack stack = lint(policy, scope -> new FargateTaskDefinition(scope, "Task")
+                .addContainer("app", ContainerDefinitionOptions.builder()
+                        .image(ContainerImage.fromRegistry("app"))
+                        .portMappings(List.of(HTTP_PORT))
+                        .build()));
+
+        assertEquals(List.of(), messages(stack, SynthesisMessageLevel.WARNING));
+        assertEquals(List.of(), messages(stack, SynthesisMessageLevel.ERROR));
+    }
+
+    @Test
+    public void laysTheEnvironmentOverTheDefaults() {
+        App app = new App(AppProps.builder()
+                .context(Map.of(
+                        PerformancePolicy.ENVIRONMENT_CONTEXT_KEY, "prod",
+                        PerformancePolicy.CONTEXT_KEY, Map.of(
+                                PerformancePolicy.DEFAULT_SECTION, Map.of(
+                                        "route-retry-policy", "off",
+                                        "cross-region-image", "off",
+                                        PerformancePolicy.MIN_HEALTH_CHECK_INTERVAL_KEY, 5),
+                                "prod", Map.of("cross-region-image", "error"))))
+                .build());
+
+        PerformancePolicy policy = PerformancePolicy.fromContext(app.getNode());
+
+        assertEquals(RuleLevel.OFF, policy.getLevel(PolicyRule.ROUTE_RETRY_POLICY));
+        assertEquals(RuleLevel.ERROR, policy.getLevel(PolicyRule.CROSS_REGION_IMAGE));
+        assertEquals(RuleLevel.WARN, policy.getLevel(PolicyRule.LISTENER_TIMEOUT));
+        assertEquals(5, policy.getMinHealthCheckIntervalSeconds());
+    }
+
+    @Test
+    public void warnsWithoutContext() {
+        PerformancePolicy policy = PerformancePolicy.fromContext(new App().getNode());
+
+        for (PolicyRule rule : PolicyRule.values()) {
+            assertEquals(RuleLevel.WARN, policy.getLevel(rule));
+        }
+        assertEquals(10, policy.getMinHealthCheckIntervalSeconds());
+    }
+
+    @Test
+    public void readsIntervalsGivenOnTheCommandLine() {
+        PerformancePolicy policy = new PerformancePolicy()
+                .configure(Map.of(PerformancePolicy.MIN_HEALTH_CHECK_INTERVAL_KEY, " 30"));
+
+        assertEquals(30, policy.getMinHealthCheckIntervalSeconds());
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> new PerformancePolicy()
+                .configure(Map.of(PerformancePolicy.MIN_HEALTH_CHECK_INTERVAL_KEY, "10s")));
+        assertTrue(error.getMessage().contains(PerformancePolicy.MIN_HEALTH_CHECK_INTERVAL_KEY), error.getMessage());
+    }
+
+    @Test
+    public void passesTheColorApp() {
+        App app = new App();
+        List<Stack> stacks = CdkAppMeshApplication.createStacks(app, StackProps.builder().build(),
+                TopologyLoader.fromResource(TopologyLoader.DEFAULT_RESOURCE), Set.of(CdkAppMeshApplication.COMPUTE));
+
+        for (Stack stack : stacks) {
+            assertEquals(List.of(), messages(stack, SynthesisMessageLevel.WARNING), stack.getStackName());
+        }
+    }
+
+    @Test
+    public void lintsTheStacksOfTheApp() {
+        MeshTopology topology = TopologyLoader.fromMap(Map.of(
+                "meshName", "lintMesh",
+                "virtualNodes", List.of(Map.of(
+                        "name", "a",
+                        "profile", "latency-sensitive",
+                        "healthCheckIntervalMillis", 5000,
+                        "task", Map.of("repository", "app", "envoy", Map.of("healthCheckIntervalSeconds", 5))))));
+        List<Stack> stacks = CdkAppMeshApplication.createStacks(new App(), StackProps.builder().build(), topology,
+                Set.of(CdkAppMeshApplication.COMPUTE));
+
+        List<String> mesh = messages(stacks.get(1), SynthesisMessageLevel.WARNING);
+        assertEquals(1, mesh.size(), String.valueOf(mesh));
+        assertTrue(mesh.get(0).startsWith("[health-check-interval] Virtual node a-vn listener"), mesh.get(0));
+        List<String> compute = messages(stacks.get(2), SynthesisMessageLevel.WARNING);
+        assertEquals(1, compute.size(), String.valueOf(compute));
+        assertTrue(compute.get(0).startsWith("[health-check-interval] Container envoy"), compute.get(0));
+    }
+
+    @Test
+    public void rejectsUnknownRulesAndLevels() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PerformancePolicy().configure(Map.of("listener-pool", "warn")));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PerformancePolicy().configure(Map.of("listener-timeout", "fatal")));
+    }
+
+    private static Stack lint(PerformancePolicy policy, Consumer<Stack> resources) {
+        return lint(policy, null, resources);
+    }
+
+    private static Stack lint(PerformancePolicy policy, String region, Consumer<Stack> resources) {
+        StackProps.Builder props = StackProps.builder();
+        if (region != null) {
+            props.env(Environment.builder().account("123456789012").region(region).build());
+        }
+        Stack stack = new Stack(new App(), "PolicyStack", props.build());
+        resources.accept(stack);
+        Aspects.of(stack).add(policy);
+        return stack;
+    }
+
+    private static void assertReported(Stack stack, SynthesisMessageLevel level, PolicyRule rule) {
+        assertTrue(reported(stack, level, rule), "No " + rule.getRuleName() + " " + level + " in "
+                + messages(stack, level));
+    }
+
+    private static boolean reported(Stack stack, SynthesisMessageLevel level, PolicyRule rule) {
+        for (String message : messages(stack, level)) {
+            if (message.startsWith("[" + rule.getRuleName() + "] ")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The policy's messages at {@code level}, leaving out those of the CDK itself.
+     */
+    private static List<String> messages(Stack stack, SynthesisMessageLevel level) {
+        List<String> messages = new ArrayList<>();
+        App app = (App) stack.getNode().getRoot();
+        for (SynthesisMessage message : app.synth().getStackByName(stack.getStackName()).getMessages()) {
+            String data = String.valueOf(message.getEntry().getData());
+            if (message.getLevel() == level && data.startsWith("[")) {
+                messages.add(data);
+            }
+        }
+        return messages;
+    }
+}
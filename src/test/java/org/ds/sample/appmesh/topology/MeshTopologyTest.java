@@ -0,0 +1,361 @@
+package org.ds.sample.appmesh.topology;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * One invalid topology per rule of {@link MeshTopology#validate()}. Topologies are written as JSON with
+ * single quotes and start from two nodes behind a router with one route.
+ */
+public class MeshTopologyTest {
+    private static final String NODES = "'virtualNodes': [{'name': 'a'}, {'name': 'b'}]";
+    private static final String SERVICES = "'virtualServices': [{'name': 'svc', 'router': 'r'}]";
+    private static final String TARGETS = "'targets': [{'node': 'a', 'weight': 1}, {'node': 'b', 'weight': 1}]";
+
+    @Test
+    public void acceptsTheBaseTopology() {
+        assertDoesNotThrow(() -> load(NODES, router(route(TARGETS)), SERVICES));
+    }
+
+    @Test
+    public void acceptsTheDefaultTopology() {
+        assertDoesNotThrow(() -> TopologyLoader.fromResource(TopologyLoader.DEFAULT_RESOURCE));
+    }
+
+    @Test
+    public void rejectsEmptyDashboards() {
+        assertInvalid("nodesPerDashboard", "'metrics': {'nodesPerDashboard': 0}", NODES);
+    }
+
+    @Test
+    public void rejectsSamplingRateAboveOne() {
+        assertInvalid("fixedRate", "'tracing': {'fixedRate': 1.5}", NODES);
+    }
+
+    @Test
+    public void rejectsFargateWithoutWeight() {
+        assertInvalid("one weight must be positive", "'compute': {'fargateWeight': 0}", NODES);
+    }
+
+    @Test
+    public void rejectsMoreMinThanMaxInstances() {
+        assertInvalid("minInstances", "'compute': {'minInstances': 5, 'maxInstances': 4}", NODES);
+    }
+
+    @Test
+    public void rejectsTargetCapacityOutOfRange() {
+        assertInvalid("targetCapacityPercent", "'compute': {'targetCapacityPercent': 0}", NODES);
+    }
+
+    @Test
+    public void rejectsArm64OnSpot() {
+        assertInvalid("Fargate Spot does not run arm64", "'compute': {'fargateSpotWeight': 1}",
+                "'virtualNodes': [{'name': 'a', 'task': {'cpuArchitecture': 'arm64'}}]");
+        assertInvalid("Fargate Spot does not run arm64",
+                "'compute': {'fargateSpotWeight': 1, 'cpuArchitecture': 'arm64'}",
+                "'virtualNodes': [{'name': 'a', 'task': {}}]");
+    }
+
+    @Test
+    public void acceptsArm64GatewayOnSpot() {
+        assertDoesNotThrow(() -> load("'compute': {'fargateSpotWeight': 1}", NODES, router(route(TARGETS)), SERVICES,
+                ingress("'cpuArchitecture': 'arm64'", "'routes': [{'name': 'in', 'service': 'svc'}]")));
+    }
+
+    @Test
+    public void rejectsNetworkWithoutAzs() {
+        assertInvalid("at least one AZ", "'network': {'maxAzs': 0}", NODES);
+    }
+
+    @Test
+    public void rejectsNoNatWithoutEndpoints() {
+        assertInvalid("without NAT gateways", "'network': {'natGateways': 0}", NODES);
+    }
+
+    @Test
+    public void rejectsNoNatWithPublicImages() {
+        assertInvalid("without NAT gateways", "'network': {'natGateways': 0, 'vpcEndpoints': true}",
+                "'metrics': {'enabled': true}", NODES);
+    }
+
+    @Test
+    public void rejectsUnknownRetention() {
+        assertInvalid("13 days", "'logging': {'retentionDays': 13}", NODES);
+    }
+
+    @Test
+    public void rejectsBufferSizeWhenBlocking() {
+        assertInvalid("maxBufferSize", "'logging': {'maxBufferSize': '25m'}", NODES);
+    }
+
+    @Test
+    public void rejectsUnknownTaskRetention() {
+        assertInvalid("of virtual node a", "'virtualNodes': [{'name': 'a', 'task': {'logRetentionDays': 2}}]");
+    }
+
+    @Test
+    public void rejectsConcurrencyOnOldEnvoy() {
+        assertInvalid("ignores before", "'envoy': {'imageTag': 'v1.20.0.1-prod', 'concurrency': 2}", NODES);
+    }
+
+    @Test
+    public void rejectsTaskConcurrencyOnOldEnvoy() {
+        assertInvalid("Virtual node a sets an Envoy concurrency", "'virtualNodes': [{'name': 'a', "
+                + "'task': {'envoy': {'imageTag': 'v1.23.1.0-prod', 'concurrency': 2}}}]");
+    }
+
+    @Test
+    public void acceptsConcurrencyOnNewerEnvoy() {
+        assertDoesNotThrow(() -> load("'envoy': {'imageTag': 'v1.25.1.0-prod', 'concurrency': 2}", NODES));
+    }
+
+    @Test
+    public void rejectsUnnamedNode() {
+        assertInvalid("Every virtual node needs a name", "'virtualNodes': [{'hostname': 'a'}]");
+    }
+
+    @Test
+    public void rejectsDuplicateNode() {
+        assertInvalid("Duplicate virtual node a", "'virtualNodes': [{'name': 'a'}, {'name': 'a'}]");
+    }
+
+    @Test
+    public void rejectsSharedServiceWithDnsDiscovery() {
+        assertInvalid("cloud-map discovery", "'virtualNodes': [{'name': 'a'}, {'name': 'b', 'discoveryService': 'a'}]");
+    }
+
+    @Test
+    public void rejectsUnknownDiscoveryService() {
+        assertInvalid("unknown discovery service c", "'discovery': 'cloud-map'",
+                "'virtualNodes': [{'name': 'a'}, {'name': 'b', 'discoveryService': 'c'}]");
+    }
+
+    @Test
+    public void rejectsDuplicateRouter() {
+        assertInvalid("Duplicate virtual router r", NODES,
+                "'virtualRouters': [{'name': 'r'}, {'name': 'r'}]");
+    }
+
+    @Test
+    public void rejectsDuplicateRoute() {
+        assertInvalid("Duplicate route in r route", NODES,
+                "'virtualRouters': [{'name': 'r', 'routes': [" + route(TARGETS) + ", " + route(TARGETS) + "]}]");
+    }
+
+    @Test
+    public void rejectsRouteWithoutTargets() {
+        assertInvalid("has no targets", NODES, router(route("'targets': []")));
+    }
+
+    @Test
+    public void rejectsUnknownTarget() {
+        assertInvalid("unknown virtual node c", NODES, router(route("'targets': [{'node': 'c'}]")));
+    }
+
+    @Test
+    public void rejectsWeightAboveHundred() {
+        assertInvalid("between 0 and 100", NODES,
+                router(route("'targets': [{'node': 'a', 'weight': 101}, {'node': 'b', 'weight': 1}]")));
+    }
+
+    @Test
+    public void rejectsNegativeWeight() {
+        assertInvalid("between 0 and 100", NODES,
+                router(route("'targets': [{'node': 'a', 'weight': -1}, {'node': 'b', 'weight': 1}]")));
+    }
+
+    @Test
+    public void rejectsRouteWithoutWeight() {
+        assertInvalid("needs a target with a weight", NODES,
+                router(route("'targets': [{'node': 'a', 'weight': 0}, {'node': 'b', 'weight': 0}]")));
+    }
+
+    @Test
+    public void rejectsGrpcRouteWithoutService() {
+        assertInvalid("needs a grpcServiceName", NODES,
+                "'virtualRouters': [{'name': 'r', 'protocol': 'grpc', 'routes': [" + route(TARGETS) + "]}]");
+    }
+
+    @Test
+    public void rejectsMethodWithoutService() {
+        assertInvalid("needs a grpcServiceName", NODES, "'virtualRouters': [{'name': 'r', 'protocol': 'grpc', "
+                + "'routes': [" + route(TARGETS + ", 'grpcMethodName': 'Get'") + "]}]");
+    }
+
+    @Test
+    public void rejectsRetryOnTcp() {
+        assertInvalid("is tcp and cannot retry", NODES, "'virtualRouters': [{'name': 'r', 'protocol': 'tcp', "
+                + "'routes': [" + route(TARGETS + ", 'retry': {'tcpEvents': ['connection-error']}") + "]}]");
+    }
+
+    @Test
+    public void rejectsGrpcEventsOnHttp() {
+        assertInvalid("grpc retry events", NODES,
+                router(route(TARGETS + ", 'retry': {'grpcEvents': ['unavailable']}")));
+    }
+
+    @Test
+    public void rejectsRetryWithoutEvents() {
+        assertInvalid("at least one retry event", NODES, router(route(TARGETS + ", 'retry': {}")));
+    }
+
+    @Test
+    public void rejectsUnknownRetryEvents() {
+        assertInvalid("unknown http event server-errors", NODES,
+                router(route(TARGETS + ", 'retry': {'httpEvents': ['server-errors']}")));
+        assertInvalid("unknown tcp event reset", NODES,
+                router(route(TARGETS + ", 'retry': {'tcpEvents': ['reset']}")));
+        assertInvalid("unknown grpc event aborted", NODES, "'virtualRouters': [{'name': 'r', 'protocol': 'grpc', "
+                + "'routes': [" + route(TARGETS + ", 'grpcServiceName': 'Svc', 'retry': {'grpcEvents': ['aborted']}")
+                + "]}]");
+    }
+
+    @Test
+    public void acceptsRetryEventsInAnyCase() {
+        assertDoesNotThrow(() -> load(NODES, router(route(TARGETS
+                + ", 'retry': {'httpEvents': ['SERVER_ERROR'], 'tcpEvents': ['Connection-Error']}")), SERVICES));
+    }
+
+    @Test
+    public void rejectsRelativeRoutePrefix() {
+        assertInvalid("Route route prefix must start with /", NODES, router(route(TARGETS + ", 'prefix': 'colors'")));
+    }
+
+    @Test
+    public void rejectsHealthCheckIntervalsOutsideTheServiceBounds() {
+        assertInvalid("Virtual node a healthCheckIntervalMillis must be between 5000 and 300000",
+                "'virtualNodes': [{'name': 'a', 'healthCheckIntervalMillis': 1000}]");
+        assertInvalid("Virtual node a Envoy healthCheckIntervalSeconds must be between 5 and 300",
+                "'virtualNodes': [{'name': 'a', 'task': {'repository': 'app', 'envoy': {'healthCheckIntervalSeconds': 600}}}]");
+        load("'virtualNodes': [{'name': 'a', 'healthCheck': false, 'healthCheckIntervalMillis': 1000}]");
+    }
+
+    @Test
+    public void rejectsShiftWithoutMetrics() {
+        assertInvalid("needs metrics enabled", NODES, router(route(TARGETS + ", 'shift': {'canary': 'b'}")));
+    }
+
+    @Test
+    public void rejectsCanaryOutsideTargets() {
+        assertInvalid("needs its canary among its targets", "'metrics': {'enabled': true}",
+                "'virtualNodes': [{'name': 'a'}, {'name': 'b'}, {'name': 'c'}]",
+                router(route(TARGETS + ", 'shift': {'canary': 'c'}")));
+    }
+
+    @Test
+    public void rejectsShiftWithoutSteps() {
+        assertInvalid("has no steps", "'metrics': {'enabled': true}", NODES,
+                router(route(TARGETS + ", 'shift': {'canary': 'b', 'steps': []}")));
+    }
+
+    @Test
+    public void rejectsDecreasingSteps() {
+        assertInvalid("must increase", "'metrics': {'enabled': true}", NODES,
+                router(route(TARGETS + ", 'shift': {'canary': 'b', 'steps': [50, 25]}")));
+    }
+
+    @Test
+    public void rejectsServiceWithRouterAndNode() {
+        assertInvalid("exactly one of router or node", NODES, router(route(TARGETS)),
+                "'virtualServices': [{'name': 'svc', 'router': 'r', 'node': 'a'}]");
+    }
+
+    @Test
+    public void rejectsServiceOfUnknownRouter() {
+        assertInvalid("unknown virtual router q", NODES, "'virtualServices': [{'name': 'svc', 'router': 'q'}]");
+    }
+
+    @Test
+    public void rejectsInvertedScaling() {
+        assertInvalid("minCapacity <= maxCapacity",
+                "'virtualNodes': [{'name': 'a', 'task': {'scaling': {'minCapacity': 3, 'maxCapacity': 2}}}]");
+    }
+
+    @Test
+    public void rejectsTaskArchitectureUnlikeEc2() {
+        assertInvalid("unlike the EC2 capacity", "'compute': {'capacity': 'ec2'}",
+                "'virtualNodes': [{'name': 'a', 'task': {'cpuArchitecture': 'arm64'}}]");
+    }
+
+    @Test
+    public void rejectsUnknownBackend() {
+        assertInvalid("unknown virtual service svc", "'virtualNodes': [{'name': 'a', 'backends': ['svc']}]");
+    }
+
+    @Test
+    public void rejectsTcpIngress() {
+        assertInvalid("must be http or http2", NODES, router(route(TARGETS)), SERVICES,
+                ingress("'protocol': 'tcp'", "'routes': [{'name': 'in', 'service': 'svc'}]"));
+    }
+
+    @Test
+    public void rejectsIngressNamedLikeANode() {
+        assertInvalid("named like a virtual node with a task",
+                "'virtualNodes': [{'name': 'a', 'task': {}}, {'name': 'b'}]", router(route(TARGETS)), SERVICES,
+                ingress("'name': 'a'", "'routes': [{'name': 'in', 'service': 'svc'}]"));
+    }
+
+    @Test
+    public void rejectsLongDeregistrationDelay() {
+        assertInvalid("deregistrationDelaySeconds", NODES, router(route(TARGETS)), SERVICES,
+                ingress("'deregistrationDelaySeconds': 4000", "'routes': [{'name': 'in', 'service': 'svc'}]"));
+    }
+
+    @Test
+    public void rejectsIngressWithoutRoutes() {
+        assertInvalid("has no routes", NODES, router(route(TARGETS)), SERVICES, ingress());
+    }
+
+    @Test
+    public void rejectsRelativeIngressPrefix() {
+        assertInvalid("prefix must start with /", NODES, router(route(TARGETS)), SERVICES,
+                ingress("'routes': [{'name': 'in', 'prefix': 'colors', 'service': 'svc'}]"));
+    }
+
+    @Test
+    public void rejectsIngressToUnknownService() {
+        assertInvalid("unknown virtual service other", NODES, router(route(TARGETS)), SERVICES,
+                ingress("'routes': [{'name': 'in', 'service': 'other'}]"));
+    }
+
+    private static String router(String route) {
+        return "'virtualRouters': [{'name': 'r', 'routes': [" + route + "]}]";
+    }
+
+    private static String route(String members) {
+        return "{'name': 'route', " + members + "}";
+    }
+
+    private static String ingress(String... members) {
+        StringBuilder ingress = new StringBuilder("'ingress': {'enabled': true");
+        for (String member : members) {
+            ingress.append(", ").append(member);
+        }
+        return ingress.append("}").toString();
+    }
+
+    private static void assertInvalid(String message, String... members) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> load(members));
+        assertTrue(e.getMessage().contains(message), () -> "Unexpected message: " + e.getMessage());
+    }
+
+    private static MeshTopology load(String... members) {
+        String json = "{" + String.join(", ", members) + "}";
+        try {
+            Map<String, Object> spec = JsonMapper.builder().build()
+                    .readValue(json.replace('\'', '"'), new TypeReference<Map<String, Object>>() { });
+            return TopologyLoader.fromMap(spec);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.ds.sample.appmesh.topology;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TopologyLoaderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void loadsTheDefaultResource() {
+        MeshTopology topology = TopologyLoader.fromResource(TopologyLoader.DEFAULT_RESOURCE);
+
+        assertEquals("colorsMesh", topology.getMeshName());
+        assertEquals(DiscoveryMode.DNS, topology.getDiscovery());
+        assertEquals(LogDeliveryMode.BLOCKING, topology.getLogging().getMode());
+        assertFalse(topology.getMetrics().isEnabled());
+        assertFalse(topology.getIngress().isEnabled());
+        assertEquals("black", topology.getVirtualNodes().get(0).getName());
+    }
+
+    @Test
+    public void loadsTheShowcaseResource() {
+        MeshTopology topology = TopologyLoader.fromResource(TopologyLoader.SHOWCASE_RESOURCE);
+
+        assertEquals(DiscoveryMode.CLOUD_MAP, topology.getDiscovery());
+        assertEquals(LogDeliveryMode.NON_BLOCKING, topology.getLogging().getMode());
+        assertTrue(topology.getMetrics().isEnabled());
+        assertTrue(topology.getIngress().isEnabled());
+    }
+
+    @Test
+    public void rejectsAMissingResource() {
+        assertThrows(IllegalArgumentException.class, () -> TopologyLoader.fromResource("/topology/missing.json"));
+    }
+
+    @Test
+    public void readsYamlWithCaseInsensitiveEnums() throws IOException {
+        Path file = dir.resolve("mesh.yml");
+        Files.write(file, List.of(
+                "meshName: yamlMesh",
+                "compute:",
+                "  capacity: EC2",
+                "virtualNodes:",
+                "  - name: a",
+                "    protocol: Http2"));
+
+        MeshTopology topology = TopologyLoader.fromFile(file);
+
+        assertEquals("yamlMesh", topology.getMeshName());
+        assertEquals(CapacityMode.EC2, topology.getCompute().getCapacity());
+        assertEquals(ListenerProtocol.HTTP2, topology.getVirtualNodes().get(0).getProtocol());
+    }
+
+    @Test
+    public void readsJsonFiles() throws IOException {
+        Path file = dir.resolve("mesh.json");
+        Files.write(file, List.of("{\"meshName\": \"jsonMesh\", \"discovery\": \"cloud-map\"}"));
+
+        MeshTopology topology = TopologyLoader.fromFile(file);
+
+        assertEquals("jsonMesh", topology.getMeshName());
+        assertEquals(DiscoveryMode.CLOUD_MAP, topology.getDiscovery());
+    }
+
+    @Test
+    public void rejectsUnknownProperties() throws IOException {
+        Path file = dir.resolve("mesh.yaml");
+        Files.write(file, List.of("meshName: m", "virtualNode: []"));
+
+        assertThrows(UncheckedIOException.class, () -> TopologyLoader.fromFile(file));
+        assertThrows(IllegalArgumentException.class, () -> TopologyLoader.fromMap(Map.of("meshNames", "m")));
+    }
+
+    @Test
+    public void validatesWhatItLoads() {
+        assertThrows(IllegalArgumentException.class, () -> TopologyLoader.fromMap(Map.of(
+                "virtualNodes", List.of(Map.of("name", "a"), Map.of("name", "a")))));
+    }
+
+    @Test
+    public void readsMaps() {
+        MeshTopology topology = TopologyLoader.fromMap(Map.of("meshName", "generated",
+                "virtualNodes", List.of(Map.of("name", "a", "port", 8080))));
+
+        assertEquals("generated", topology.getMeshName());
+        assertEquals(8080, topology.getVirtualNodes().get(0).getPort());
+    }
+}